@@ -194,5 +194,59 @@ public class GlobalErrorHandler extends ResponseEntityExceptionHandler {
                 errors
         ), HttpStatus.BAD_REQUEST);
     }
-}
 
+    @ExceptionHandler(InvoiceConflictException.class)
+    protected final ResponseEntity<Object> handleInvoiceConflictException(InvoiceConflictException ex) {
+        List<Map<String, String>> errors = new ArrayList<>();
+        errors.add(_getErrorsMaps(ex.getField(), ex.getMessage()));
+        return new ResponseEntity<>(new DefaultValidationErrorResponse(
+                HttpStatus.CONFLICT,
+                "Invoice Conflict.",
+                errors
+        ), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvoiceImportException.class)
+    protected final ResponseEntity<Object> handleInvoiceImportException(InvoiceImportException ex) {
+        List<Map<String, String>> errors = new ArrayList<>();
+        errors.add(_getErrorsMaps(ex.getField(), ex.getMessage()));
+        return new ResponseEntity<>(new DefaultValidationErrorResponse(
+                ex.getStatusCode(),
+                "Invoice Import Failed.",
+                errors
+        ), ex.getStatusCode());
+    }
+
+    @ExceptionHandler(InvoiceCursorException.class)
+    protected final ResponseEntity<Object> handleInvoiceCursorException(InvoiceCursorException ex) {
+        List<Map<String, String>> errors = new ArrayList<>();
+        errors.add(_getErrorsMaps(ex.getField(), ex.getMessage()));
+        return new ResponseEntity<>(new DefaultValidationErrorResponse(
+                HttpStatus.BAD_REQUEST,
+                "Invalid Invoice Cursor.",
+                errors
+        ), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvoiceSortException.class)
+    protected final ResponseEntity<Object> handleInvoiceSortException(InvoiceSortException ex) {
+        List<Map<String, String>> errors = new ArrayList<>();
+        errors.add(_getErrorsMaps(ex.getField(), ex.getMessage()));
+        return new ResponseEntity<>(new DefaultValidationErrorResponse(
+                HttpStatus.BAD_REQUEST,
+                "Invalid Invoice Sort.",
+                errors
+        ), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvoiceBatchSizeException.class)
+    protected final ResponseEntity<Object> handleInvoiceBatchSizeException(InvoiceBatchSizeException ex) {
+        List<Map<String, String>> errors = new ArrayList<>();
+        errors.add(_getErrorsMaps(ex.getField(), ex.getMessage()));
+        return new ResponseEntity<>(new DefaultValidationErrorResponse(
+                HttpStatus.BAD_REQUEST,
+                "Invalid Invoice Batch.",
+                errors
+        ), HttpStatus.BAD_REQUEST);
+    }
+}
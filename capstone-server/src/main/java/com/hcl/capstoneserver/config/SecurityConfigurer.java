@@ -1,5 +1,6 @@
 package com.hcl.capstoneserver.config;
 
+import com.hcl.capstoneserver.filters.AuthRateLimitFilter;
 import com.hcl.capstoneserver.filters.JwtRequestFilter;
 import com.hcl.capstoneserver.user.UserService;
 import org.springframework.context.annotation.Bean;
@@ -20,12 +21,14 @@ public class SecurityConfigurer extends WebSecurityConfigurerAdapter {
 
     private final UserService userService;
     private final JwtRequestFilter jwtRequestFilter;
+    private final AuthRateLimitFilter authRateLimitFilter;
     private final BCryptPasswordEncoder passwordEncoder;
 
     public SecurityConfigurer(UserService userService, JwtRequestFilter jwtRequestFilter,
-                              BCryptPasswordEncoder passwordEncoder) {
+                              AuthRateLimitFilter authRateLimitFilter, BCryptPasswordEncoder passwordEncoder) {
         this.userService = userService;
         this.jwtRequestFilter = jwtRequestFilter;
+        this.authRateLimitFilter = authRateLimitFilter;
         this.passwordEncoder = passwordEncoder;
     }
 
@@ -60,5 +63,7 @@ public class SecurityConfigurer extends WebSecurityConfigurerAdapter {
             .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 
         http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+        // throttled requests are refused before their jwt is parsed
+        http.addFilterBefore(authRateLimitFilter, JwtRequestFilter.class);
     }
 }
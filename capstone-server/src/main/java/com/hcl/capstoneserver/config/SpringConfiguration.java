@@ -1,22 +1,93 @@
 package com.hcl.capstoneserver.config;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class SpringConfiguration {
+    // the work factor can be raised at any time, older hashes are rehashed on the next sign in
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(@Value("${security.password.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
+    // workers of the bcrypt work, a sign in or sign up that finds every worker busy and the queue full is refused
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService passwordHashExecutor(
+            @Value("${security.password.threads:4}") int threads,
+            @Value("${security.password.queue-size:50}") int queueSize
+    ) {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /*
+     * Workers of the reactive invoice retrieve: a stream is opened on one of them and the requests of its subscriber
+     * are moved to that worker, so the rows are read there too. A worker is free again between two requests.
+     * They do not limit the open streams (and their connections), invoice.stream.max-open does.
+     * */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler invoiceStreamScheduler(
+            @Value("${invoice.stream.threads:8}") int threads,
+            @Value("${invoice.stream.queue-size:1000}") int queueSize
+    ) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "invoice-stream");
+    }
+
+    /*
+     * Runs the count query of the invoice searches next to the page query, on its own connection.
+     * When every worker is busy and the queue is full the count is refused and the search runs it itself.
+     * */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService invoiceCountExecutor(
+            @Value("${invoice.search.count-threads:4}") int threads,
+            @Value("${invoice.search.count-queue-size:100}") int queueSize
+    ) {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new CustomizableThreadFactory("invoice-count-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    // workers of the csv invoice imports, an import that finds every worker busy and the queue full is refused
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService invoiceImportExecutor(
+            @Value("${invoice.import.threads:2}") int threads,
+            @Value("${invoice.import.queue-size:10}") int queueSize
+    ) {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new CustomizableThreadFactory("invoice-import-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
     }
 
     @Bean
@@ -0,0 +1,60 @@
+package com.hcl.capstoneserver.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hcl.capstoneserver.config.error_responses.DefaultErrorResponse;
+import com.hcl.capstoneserver.user.AuthRateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/*
+ * Per client ip limit of the sign in, refresh token and sign up endpoints, other requests are not looked at.
+ * The remote address is the client address only when the X-Forwarded-For header of the proxy in front is applied:
+ * server.forward-headers-strategy=native lets Tomcat take it from the proxies of
+ * server.tomcat.remoteip.internal-proxies (private addresses by default), the header of any other sender is ignored
+ * so it can not be used to change the key. A deployment behind a proxy with a public address has to add it there,
+ * otherwise every client shares the bucket of the proxy.
+ * */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+    private final AuthRateLimiter authRateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public AuthRateLimitFilter(AuthRateLimiter authRateLimiter, ObjectMapper objectMapper) {
+        this.authRateLimiter = authRateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !(path.equals("/api/sign-in")
+                || path.equals("/api/refresh-token")
+                || path.startsWith("/api/sign-up/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!authRateLimiter.tryAcquireIp(request.getRemoteAddr())) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(authRateLimiter.getIpRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(
+                    response.getOutputStream(),
+                    new DefaultErrorResponse(HttpStatus.TOO_MANY_REQUESTS, "Too many requests, please try again later.")
+            );
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -2,6 +2,7 @@ package com.hcl.capstoneserver.filters;
 
 import com.hcl.capstoneserver.user.UserService;
 import com.hcl.capstoneserver.util.JWTUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import org.hibernate.annotations.Filter;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -35,33 +36,33 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         // extract the authorization header
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String jwt = null;
-        String userName = null;
-        System.out.println("auth header:"+authorizationHeader);
+        Claims claims = null;
         //check if authorization header has bearer on it
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             // extract content after bearer as jwt token
             // Bearer jwt_token -> jwt_token
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
 
             try {
-                //extract the username from jwt
-                userName = jwtUtil.extractUsername(jwt);
+                //verify the jwt once, the username, the user type and the expiry are read from its claims
+                claims = jwtUtil.parseVerifiedClaims(jwt);
             } catch (JwtException ignored) {
-            	
+
             }
         }
 
         //if username exists and request is not already authorized
-        if (userName != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            //fetch the user by username
-            String userType = jwtUtil.extractUserType(jwt);
+        if (claims != null && claims.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String userType = jwtUtil.getUserType(claims);
 
             //check if the jwt is valid or not
-            if (jwtUtil.validateToken(jwt)) {
+            if (!jwtUtil.isTokenExpired(claims)) {
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(
-                                userName, null, Collections.singleton(new SimpleGrantedAuthority(userType))
+                                jwtUtil.getAuthenticatedUser(claims),
+                                null,
+                                Collections.singleton(new SimpleGrantedAuthority(userType))
                         );
 
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -16,10 +16,9 @@ public class CustomIdGenerator extends SequenceStyleGenerator {
 
     public static final String PREFIX_PARAM = "none"; // customer defined prefix parameter (eg: A_, Stu_)
     public static final String PREFIX_DEFAULT_PARAM = "";
-    private String prefix;
     public static final String NUMBER_FORMAT_PARAM = "numberFormat"; // customer defined zeros (eg: A-0001)
     public static final String NUMBER_FORMAT_DEFAULT_PARAM = "%d";
-    private String numberFormat;
+    private PaddedIdFormatter formatter;
 
     @Override
     public void configure(Type type,
@@ -29,17 +28,18 @@ public class CustomIdGenerator extends SequenceStyleGenerator {
                 LongType.INSTANCE,
                 properties,
                 serviceRegistry);
-        prefix = ConfigurationHelper.getString(
+        String prefix = ConfigurationHelper.getString(
                 PREFIX_PARAM, properties, PREFIX_DEFAULT_PARAM
         );
-        numberFormat = ConfigurationHelper.getString(
+        String numberFormat = ConfigurationHelper.getString(
                 NUMBER_FORMAT_PARAM, properties, NUMBER_FORMAT_DEFAULT_PARAM
         );
+        formatter = PaddedIdFormatter.compile(prefix, numberFormat);
     }
 
     @Override
     public Serializable generate(SharedSessionContractImplementor session,
                                  Object object) throws HibernateException {
-        return prefix + String.format(numberFormat, super.generate(session, object));
+        return formatter.format((Long) super.generate(session, object));
     }
 }
\ No newline at end of file
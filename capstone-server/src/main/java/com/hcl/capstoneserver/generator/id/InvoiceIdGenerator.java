@@ -0,0 +1,38 @@
+package com.hcl.capstoneserver.generator.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.springframework.data.mapping.MappingException;
+
+import java.util.Properties;
+
+/*
+ * Pooled-lo sequence of the invoice ids: one sequence call reserves a block of ids that are then handed out in memory,
+ * so a batch of inserts does not need a sequence round-trip per row.
+ * The block size is read from the "invoice.id.increment-size" jpa property (spring.jpa.properties.invoice.id.increment-size).
+ * */
+public class InvoiceIdGenerator extends SequenceStyleGenerator {
+
+    public static final String SEQUENCE_NAME = "invoice_sequence";
+    public static final String INCREMENT_SIZE_SETTING = "invoice.id.increment-size";
+    public static final int INCREMENT_SIZE_DEFAULT = 50;
+
+    @Override
+    public void configure(Type type,
+                          Properties properties,
+                          ServiceRegistry serviceRegistry) throws MappingException {
+        int incrementSize = ConfigurationHelper.getInt(
+                INCREMENT_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(),
+                INCREMENT_SIZE_DEFAULT
+        );
+        properties.putIfAbsent(SEQUENCE_PARAM, SEQUENCE_NAME);
+        properties.putIfAbsent(INITIAL_PARAM, "1");
+        properties.putIfAbsent(OPT_PARAM, "pooled-lo");
+        properties.putIfAbsent(INCREMENT_PARAM, String.valueOf(incrementSize));
+        super.configure(type, properties, serviceRegistry);
+    }
+}
@@ -0,0 +1,71 @@
+package com.hcl.capstoneserver.generator.id;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Formats ids as prefix + number the way String.format(numberFormat, number) does, for the "%d" and "%0Nd" formats.
+ * The format is parsed once, each id is then written into one char buffer of the exact size.
+ * Other formats are left to String.format.
+ * */
+public final class PaddedIdFormatter {
+    private static final Pattern ZERO_PADDED_FORMAT = Pattern.compile("%(?:0(\\d+))?d");
+
+    private final String prefix;
+    private final String numberFormat;
+    private final int width;
+    private final boolean compiled;
+
+    private PaddedIdFormatter(String prefix, String numberFormat, int width, boolean compiled) {
+        this.prefix = prefix;
+        this.numberFormat = numberFormat;
+        this.width = width;
+        this.compiled = compiled;
+    }
+
+    public static PaddedIdFormatter compile(String prefix, String numberFormat) {
+        Matcher matcher = ZERO_PADDED_FORMAT.matcher(numberFormat);
+        if (!matcher.matches()) {
+            return new PaddedIdFormatter(prefix, numberFormat, 0, false);
+        }
+        int width = matcher.group(1) == null ? 0 : Integer.parseInt(matcher.group(1));
+        return new PaddedIdFormatter(prefix, numberFormat, width, true);
+    }
+
+    private static int _digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    public String format(long number) {
+        // Long.MIN_VALUE has no positive counterpart
+        if (!compiled || number == Long.MIN_VALUE) {
+            return prefix + String.format(numberFormat, number);
+        }
+
+        boolean negative = number < 0;
+        long value = negative ? -number : number;
+        int digits = _digits(value);
+        int numberLength = Math.max(width, digits + (negative ? 1 : 0));
+        char[] buffer = new char[prefix.length() + numberLength];
+
+        prefix.getChars(0, prefix.length(), buffer, 0);
+        int position = buffer.length;
+        for (int i = 0; i < digits; i++) {
+            buffer[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        int start = prefix.length();
+        while (position > start + (negative ? 1 : 0)) {
+            buffer[--position] = '0';
+        }
+        if (negative) {
+            buffer[start] = '-';
+        }
+        return new String(buffer);
+    }
+}
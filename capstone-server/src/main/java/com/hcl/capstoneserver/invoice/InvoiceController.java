@@ -1,26 +1,64 @@
 package com.hcl.capstoneserver.invoice;
 
 import com.hcl.capstoneserver.invoice.dto.*;
-import org.springframework.data.domain.Page;
+import com.hcl.capstoneserver.invoice.model.InvoiceImportJob;
+import com.hcl.capstoneserver.user.AuthenticatedUser;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.List;
 
 @CrossOrigin
 @RestController
 public class InvoiceController {
 
     private final InvoiceService invoiceService;
+    private final InvoiceImportService invoiceImportService;
 
-    public InvoiceController(InvoiceService invoiceService) {
+    public InvoiceController(InvoiceService invoiceService, InvoiceImportService invoiceImportService) {
         this.invoiceService = invoiceService;
+        this.invoiceImportService = invoiceImportService;
     }
 
     @PostMapping("/api/invoices/create")
-    public ResponseEntity<ClientViewInvoiceDTO> createInvoice(@RequestBody CreateInvoiceDTO dto, Principal principal) {
-        return new ResponseEntity<>(invoiceService.createInvoice(dto, principal.getName()), HttpStatus.CREATED);
+    public ResponseEntity<ClientViewInvoiceDTO> createInvoice(
+            @RequestBody CreateInvoiceDTO dto,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return new ResponseEntity<>(invoiceService.createInvoice(dto, user), HttpStatus.CREATED);
+    }
+
+    @PostMapping("/api/invoices/create/bulk")
+    public ResponseEntity<List<BulkCreateInvoiceResultDTO>> createInvoices(
+            @RequestBody List<CreateInvoiceDTO> dtos,
+            Principal principal
+    ) {
+        return new ResponseEntity<>(invoiceService.createInvoices(dtos, principal.getName()), HttpStatus.CREATED);
+    }
+
+    // the body is the csv file itself, it is read as a stream
+    @PostMapping(value = "/api/invoices/import", consumes = "text/csv")
+    public ResponseEntity<InvoiceImportJob> importInvoices(HttpServletRequest request, Principal principal)
+            throws IOException {
+        return new ResponseEntity<>(
+                invoiceImportService.importInvoices(request.getInputStream(), principal.getName()),
+                HttpStatus.ACCEPTED
+        );
+    }
+
+    @GetMapping("/api/invoices/import/{jobId}")
+    public InvoiceImportJob getImportJob(@PathVariable String jobId, Principal principal) {
+        return invoiceImportService.getImportJob(jobId, principal.getName());
     }
 
     @PutMapping("/api/invoices/update")
@@ -33,29 +71,70 @@ public class InvoiceController {
         return new ResponseEntity<>(invoiceService.statusUpdate(dto, principal.getName()), HttpStatus.CREATED);
     }
 
+    @PutMapping("/api/invoices/update/status/bulk")
+    public ResponseEntity<List<BulkStatusUpdateResultDTO>> setStatuses(
+            @RequestBody List<StatusUpdateInvoiceDTO> dtos,
+            Principal principal
+    ) {
+        return new ResponseEntity<>(invoiceService.statusUpdates(dtos, principal.getName()), HttpStatus.CREATED);
+    }
+
     @DeleteMapping("/api/invoices/delete/{id}")
     public ResponseEntity<Long> deleteInvoice(@PathVariable Integer id, Principal principal) {
         return new ResponseEntity<>(invoiceService.deleteInvoice(id, principal.getName()), HttpStatus.OK);
     }
 
     @GetMapping("/api/invoices/retrieve/bank")
-    public Page<BankViewInvoiceDTO> getAllInvoice(@RequestBody InvoiceSearchCriteriaDTO dto, Principal principal) {
+    public Slice<BankViewInvoiceDTO> getAllInvoice(@RequestBody InvoiceSearchCriteriaDTO dto, Principal principal) {
         return invoiceService.getBankInvoice(dto, principal.getName());
     }
 
+    @GetMapping(value = "/api/invoices/stream/bank", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BankViewInvoiceDTO> streamAllInvoice(@RequestBody InvoiceSearchCriteriaDTO dto, Principal principal) {
+        return invoiceService.streamBankInvoice(dto, principal.getName());
+    }
+
+    @GetMapping(value = "/api/invoices/stream/client", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ClientViewInvoiceDTO> streamClientAllInvoice(
+            @RequestBody InvoiceSearchCriteriaDTO dto,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return invoiceService.streamClientInvoice(dto, user);
+    }
+
+    @GetMapping(value = "/api/invoices/stream/supplier", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SupplierVIewInvoiceDTO> streamSupplierAllInvoice(
+            @RequestBody InvoiceSearchCriteriaDTO dto,
+            @AuthenticationPrincipal AuthenticatedUser user
+    ) {
+        return invoiceService.streamSupplierInvoice(dto, user);
+    }
+
+    @GetMapping("/api/invoices/export/bank")
+    public void exportAllInvoice(
+            @RequestBody InvoiceSearchCriteriaDTO dto,
+            @RequestParam(defaultValue = "NDJSON") InvoiceExportFormat format,
+            Principal principal,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        invoiceService.exportBankInvoice(dto, format, response.getOutputStream(), principal.getName());
+    }
+
     @GetMapping("/api/invoices/retrieve/client")
-    public Page<ClientViewInvoiceDTO> getClientAllInvoice(
+    public Slice<ClientViewInvoiceDTO> getClientAllInvoice(
             @RequestBody InvoiceSearchCriteriaDTO dto,
-            Principal principal
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
-        return invoiceService.getClientInvoice(dto, principal.getName());
+        return invoiceService.getClientInvoice(dto, user);
     }
 
     @GetMapping("/api/invoices/retrieve/supplier")
-    public Page<SupplierVIewInvoiceDTO> getSupplierAllInvoice(
+    public Slice<SupplierVIewInvoiceDTO> getSupplierAllInvoice(
             @RequestBody InvoiceSearchCriteriaDTO dto,
-            Principal principal
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
-        return invoiceService.getSupplierInvoice(dto, principal.getName());
+        return invoiceService.getSupplierInvoice(dto, user);
     }
 }
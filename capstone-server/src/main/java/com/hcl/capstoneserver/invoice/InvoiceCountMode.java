@@ -0,0 +1,10 @@
+package com.hcl.capstoneserver.invoice;
+
+public enum InvoiceCountMode {
+    // run the count query on every first page, a cursor page reuses the count of the earlier pages like CACHED
+    EXACT,
+    // reuse the count of an earlier search with the same filters, invoice writes clear it
+    CACHED,
+    // do not count, the result only tells if there is a next page
+    NONE
+}
@@ -0,0 +1,18 @@
+package com.hcl.capstoneserver.invoice;
+
+public enum InvoiceExportFormat {
+    // one json object per line
+    NDJSON("application/x-ndjson"),
+    // header line, then one line per invoice
+    CSV("text/csv");
+
+    private final String contentType;
+
+    InvoiceExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,353 @@
+package com.hcl.capstoneserver.invoice;
+
+import com.hcl.capstoneserver.invoice.dto.BulkCreateInvoiceResultDTO;
+import com.hcl.capstoneserver.invoice.dto.CreateInvoiceDTO;
+import com.hcl.capstoneserver.invoice.exception.InvoiceImportException;
+import com.hcl.capstoneserver.invoice.model.InvoiceImportJob;
+import com.hcl.capstoneserver.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Imports the invoices of a csv file upload in the background.
+ * The upload is copied to a temporary file, then an import worker reads it chunk by chunk: the rows of a chunk are
+ * parsed and checked in parallel, and the valid ones are created by InvoiceService.createInvoices, one transaction
+ * per chunk. Only one chunk is in memory at a time whatever the size of the file.
+ *
+ * The request is answered once the file is copied, the import itself can take longer than a request. A file is at
+ * most invoice.import.max-size bytes (1 GB by default, for files of hundreds of MB) and at most
+ * invoice.import.threads + invoice.import.queue-size files are copied or waiting for their import at a time, so the
+ * temporary directory holds at most that many times max-size bytes of uploads.
+ *
+ * The file starts with a header line naming the columns: supplierId, invoiceNumber, invoiceDate (yyyy-MM-dd),
+ * amount and currencyType, in any order. Values can be quoted, a quoted value can not hold a line break.
+ * */
+@Service
+public class InvoiceImportService {
+    private static final String[] COLUMNS = {"supplierId", "invoiceNumber", "invoiceDate", "amount", "currencyType"};
+
+    private final InvoiceService invoiceService;
+    private final ExecutorService invoiceImportExecutor;
+    // queued and running jobs, they are never evicted, there are at most as many as the import workers and queue
+    private final Map<String, InvoiceImportJob> activeJobs = new ConcurrentHashMap<>();
+    // finished jobs, kept for their report until they are evicted or expire
+    private final BoundedCache<String, InvoiceImportJob> jobs;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final long maxSize;
+    // one permit per upload on the disk, from the start of its copy to the end of its import
+    private final Semaphore uploadPermits;
+
+    public InvoiceImportService(
+            InvoiceService invoiceService,
+            @Qualifier("invoiceImportExecutor") ExecutorService invoiceImportExecutor,
+            @Value("${invoice.import.jobs.size:100}") int jobsSize,
+            @Value("${invoice.import.jobs.ttl:3600000}") long jobsTtl,
+            @Value("${invoice.bulk.chunk-size:500}") int chunkSize,
+            @Value("${invoice.import.max-errors:1000}") int maxErrors,
+            @Value("${invoice.import.max-size:1073741824}") long maxSize,
+            @Value("${invoice.import.threads:2}") int threads,
+            @Value("${invoice.import.queue-size:10}") int queueSize
+    ) {
+        this.invoiceService = invoiceService;
+        this.invoiceImportExecutor = invoiceImportExecutor;
+        this.jobs = new BoundedCache<>(jobsSize, jobsTtl);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.maxSize = maxSize;
+        this.uploadPermits = new Semaphore(threads + queueSize);
+    }
+
+    // a parsed row, with the dto when the row is valid or the error when it is not
+    private static final class ImportRow {
+        private final long line;
+        private final CreateInvoiceDTO dto;
+        private final String error;
+
+        private ImportRow(long line, CreateInvoiceDTO dto, String error) {
+            this.line = line;
+            this.dto = dto;
+            this.error = error;
+        }
+    }
+
+    // split a csv line, a value in double quotes can hold commas and "" stands for a quote
+    private static List<String> _splitLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    // index of each column in the lines of the file
+    private static int[] _getColumnIndexes(String header) {
+        List<String> names = _splitLine(Objects.isNull(header) ? "" : header.replace("\uFEFF", ""));
+        int[] indexes = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            indexes[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (COLUMNS[i].equalsIgnoreCase(names.get(j))) {
+                    indexes[i] = j;
+                }
+            }
+            if (indexes[i] < 0) {
+                throw new IllegalStateException(String.format("The %s column is missing.", COLUMNS[i]));
+            }
+        }
+        return indexes;
+    }
+
+    private static String _getValue(List<String> values, int index) {
+        return index < values.size() && !values.get(index).isEmpty() ? values.get(index) : null;
+    }
+
+    // the CreateInvoiceDTO rules, the other rules (supplier, date, duplicates) are checked by createInvoices
+    private static ImportRow _parseRow(long line, String text, int[] columns) {
+        List<String> values = _splitLine(text);
+        String supplierId = _getValue(values, columns[0]);
+        String invoiceNumber = _getValue(values, columns[1]);
+        String invoiceDate = _getValue(values, columns[2]);
+        String amount = _getValue(values, columns[3]);
+        String currencyType = _getValue(values, columns[4]);
+        if (Objects.isNull(supplierId)) {
+            return new ImportRow(line, null, "supplier id is required");
+        }
+        if (Objects.isNull(invoiceNumber)) {
+            return new ImportRow(line, null, "invoice number is required");
+        }
+        if (Objects.isNull(invoiceDate)) {
+            return new ImportRow(line, null, "invoice date is required");
+        }
+        if (Objects.isNull(amount)) {
+            return new ImportRow(line, null, "amount is required");
+        }
+        if (Objects.isNull(currencyType)) {
+            return new ImportRow(line, null, "currency is required");
+        }
+
+        CreateInvoiceDTO dto;
+        try {
+            dto = new CreateInvoiceDTO(
+                    supplierId,
+                    invoiceNumber,
+                    LocalDate.parse(invoiceDate),
+                    Double.valueOf(amount),
+                    CurrencyType.valueOf(currencyType.toUpperCase(Locale.ROOT))
+            );
+        } catch (DateTimeParseException e) {
+            return new ImportRow(line, null, "invoice date is not a valid date");
+        } catch (NumberFormatException e) {
+            return new ImportRow(line, null, "amount is not a number");
+        } catch (IllegalArgumentException e) {
+            return new ImportRow(line, null, "currency is not supported");
+        }
+        if (dto.getAmount() <= 0) {
+            return new ImportRow(line, null, "amount must be greater than 0");
+        }
+        return new ImportRow(line, dto, null);
+    }
+
+    private void _importChunk(InvoiceImportJob job, List<Long> lineNumbers, List<String> lines, int[] columns) {
+        // parse and check the rows of the chunk in parallel, they are collected in the order of the file
+        List<ImportRow> rows = IntStream.range(0, lines.size())
+                                        .parallel()
+                                        .mapToObj(i -> _parseRow(lineNumbers.get(i), lines.get(i), columns))
+                                        .collect(Collectors.toList());
+        job.addRows(rows.size());
+
+        List<ImportRow> validRows = new ArrayList<>(rows.size());
+        List<BulkCreateInvoiceResultDTO> errors = new ArrayList<>();
+        for (ImportRow row : rows) {
+            if (Objects.isNull(row.error)) {
+                validRows.add(row);
+            } else {
+                errors.add(new BulkCreateInvoiceResultDTO((int) row.line, null, null, null, row.error));
+            }
+        }
+
+        if (!validRows.isEmpty()) {
+            try {
+                List<BulkCreateInvoiceResultDTO> results = invoiceService.createInvoices(
+                        validRows.stream().map(row -> row.dto).collect(Collectors.toList()),
+                        job.getUserId()
+                );
+                for (int i = 0; i < results.size(); i++) {
+                    BulkCreateInvoiceResultDTO result = results.get(i);
+                    result.setRow((int) validRows.get(i).line);
+                    if (Objects.isNull(result.getError())) {
+                        job.addCreated(1);
+                    } else {
+                        errors.add(result);
+                    }
+                }
+            } catch (HttpClientErrorException e) {
+                // the chunk is refused as a whole (its client is not found), none of its rows is created
+                for (ImportRow row : validRows) {
+                    errors.add(new BulkCreateInvoiceResultDTO(
+                            (int) row.line,
+                            null,
+                            row.dto.getSupplierId(),
+                            row.dto.getInvoiceNumber(),
+                            e.getStatusText()
+                    ));
+                }
+            }
+        }
+
+        errors.sort(Comparator.comparing(BulkCreateInvoiceResultDTO::getRow));
+        errors.forEach(job::addError);
+    }
+
+    private void _runImport(InvoiceImportJob job, Path file) {
+        job.setStatus(InvoiceImportStatus.RUNNING);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int[] columns = _getColumnIndexes(reader.readLine());
+            List<Long> lineNumbers = new ArrayList<>(chunkSize);
+            List<String> lines = new ArrayList<>(chunkSize);
+            long lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                lineNumbers.add(lineNumber);
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    _importChunk(job, lineNumbers, lines, columns);
+                    lineNumbers.clear();
+                    lines.clear();
+                }
+            }
+            if (!lines.isEmpty()) {
+                _importChunk(job, lineNumbers, lines, columns);
+            }
+            job.setStatus(InvoiceImportStatus.DONE);
+        } catch (IOException | RuntimeException e) {
+            job.setMessage(e.getMessage());
+            job.setStatus(InvoiceImportStatus.FAILED);
+        } finally {
+            jobs.put(job.getJobId(), job);
+            activeJobs.remove(job.getJobId());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // left to the cleaning of the temporary directory
+            } finally {
+                uploadPermits.release();
+            }
+        }
+    }
+
+    /*
+     * A raw request body is not limited like a multipart upload, so the copy stops at invoice.import.max-size bytes
+     * and the upload is refused, it does not fill the temporary directory.
+     * */
+    private void _copyUpload(InputStream inputStream, Path file) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[8192];
+            long size = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new InvoiceImportException(
+                            HttpStatus.PAYLOAD_TOO_LARGE,
+                            String.format("The import file is larger than %d bytes.", maxSize)
+                    );
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        }
+    }
+
+    // copy the upload to a temporary file and queue its import, the returned job tells the progress
+    public InvoiceImportJob importInvoices(InputStream inputStream, String userId) throws IOException {
+        if (!uploadPermits.tryAcquire()) {
+            throw _getTooManyImportsException();
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("invoice-import-", ".csv");
+            _copyUpload(inputStream, file);
+
+            InvoiceImportJob job = new InvoiceImportJob(UUID.randomUUID().toString(), userId, maxErrors);
+            activeJobs.put(job.getJobId(), job);
+            Path upload = file;
+            try {
+                invoiceImportExecutor.execute(() -> _runImport(job, upload));
+            } catch (RejectedExecutionException e) {
+                activeJobs.remove(job.getJobId());
+                throw _getTooManyImportsException();
+            }
+            return job;
+        } catch (IOException | RuntimeException e) {
+            // the permit and the file belong to the import worker once the job is queued, not on a failure
+            try {
+                if (Objects.nonNull(file)) {
+                    Files.deleteIfExists(file);
+                }
+            } finally {
+                uploadPermits.release();
+            }
+            throw e;
+        }
+    }
+
+    private static InvoiceImportException _getTooManyImportsException() {
+        return new InvoiceImportException(
+                HttpStatus.TOO_MANY_REQUESTS,
+                "Too many invoice imports are running, please try again later."
+        );
+    }
+
+    // a job is only visible to the user who started it
+    public InvoiceImportJob getImportJob(String jobId, String userId) {
+        InvoiceImportJob job = activeJobs.get(jobId);
+        if (Objects.isNull(job)) {
+            job = jobs.get(jobId);
+        }
+        if (Objects.isNull(job) || !job.getUserId().equals(userId)) {
+            throw new InvoiceImportException(HttpStatus.BAD_REQUEST, "Import job is not found.");
+        }
+        return job;
+    }
+}
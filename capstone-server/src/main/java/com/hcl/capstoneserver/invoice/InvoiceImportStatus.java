@@ -0,0 +1,11 @@
+package com.hcl.capstoneserver.invoice;
+
+public enum InvoiceImportStatus {
+    // waiting for a free import worker
+    QUEUED,
+    RUNNING,
+    // every row is read, the rows with errors are in the report
+    DONE,
+    // the file can not be read, the rows written before stay created
+    FAILED
+}
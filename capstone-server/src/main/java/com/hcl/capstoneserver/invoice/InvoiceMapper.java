@@ -0,0 +1,47 @@
+package com.hcl.capstoneserver.invoice;
+
+import com.hcl.capstoneserver.invoice.dto.ClientViewInvoiceDTO;
+import com.hcl.capstoneserver.invoice.dto.UpdateInvoiceDTO;
+import com.hcl.capstoneserver.invoice.entities.Invoice;
+import com.hcl.capstoneserver.user.dto.views.SupplierDataViewDTO;
+import com.hcl.capstoneserver.user.entities.Supplier;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+// maps the invoice entity to and from its DTOs with plain getters and setters
+@Component
+public class InvoiceMapper {
+
+    public ClientViewInvoiceDTO toClientView(Invoice invoice) {
+        Supplier supplier = invoice.getSupplier();
+        return new ClientViewInvoiceDTO(
+                invoice.getInvoiceId(),
+                Objects.isNull(supplier) ? null : new SupplierDataViewDTO(supplier.getSupplierId(), supplier.getName()),
+                invoice.getInvoiceNumber(),
+                invoice.getInvoiceDate(),
+                invoice.getAmount(),
+                invoice.getStatus(),
+                invoice.getCurrencyType()
+        );
+    }
+
+    // copies the given fields of the update, a null field keeps the value of the invoice
+    public void update(UpdateInvoiceDTO dto, Supplier supplier, Invoice invoice) {
+        if (Objects.nonNull(dto.getSupplierId())) {
+            invoice.setSupplier(supplier);
+        }
+        if (Objects.nonNull(dto.getInvoiceNumber())) {
+            invoice.setInvoiceNumber(dto.getInvoiceNumber());
+        }
+        if (Objects.nonNull(dto.getInvoiceDate())) {
+            invoice.setInvoiceDate(dto.getInvoiceDate());
+        }
+        if (Objects.nonNull(dto.getAmount())) {
+            invoice.setAmount(dto.getAmount());
+        }
+        if (Objects.nonNull(dto.getCurrencyType())) {
+            invoice.setCurrencyType(dto.getCurrencyType());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.hcl.capstoneserver.invoice;
+
+import com.hcl.capstoneserver.invoice.dto.InvoiceSearchCriteriaDTO;
+import com.hcl.capstoneserver.invoice.model.InvoiceSearchKey;
+import com.hcl.capstoneserver.util.BoundedCache;
+import com.hcl.capstoneserver.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/*
+ * Pages of the client and supplier invoice searches, kept for a short time because the dashboards poll them.
+ * An entry belongs to one client or one supplier, an invoice write only drops the entries of its client and supplier.
+ * Bank searches are not kept, but identical bank searches running at the same time share one query.
+ * An owner with pages being loaded has a generation, moved by each invalidation of its pages. A page loaded while
+ * its owner was invalidated may hold the rows from before the write, so it is returned but not kept.
+ * The generation of an owner is dropped when its last load ends, so there are only as many as the running loads.
+ * */
+@Component
+public class InvoiceSearchCache {
+    private static final String CLIENT = "CLIENT";
+    private static final String SUPPLIER = "SUPPLIER";
+
+    private final BoundedCache<String, Slice<?>> pageCache;
+    private final SingleFlight<String, Slice<?>> bankSearches = new SingleFlight<>();
+    // "view|ownerId|" -> loads of the owner running now, changed, put and invalidated under the lock
+    private final Map<String, OwnerLoads> ownerLoads = new HashMap<>();
+    private final Object generationLock = new Object();
+
+    private static final class OwnerLoads {
+        // number of invalidations of the owner since its first running load started
+        private long generation;
+        private int running;
+    }
+
+    public InvoiceSearchCache(
+            MeterRegistry meterRegistry,
+            @Value("${invoice.search.page-cache.size:1000}") int pageCacheSize,
+            @Value("${invoice.search.page-cache.ttl:5000}") long pageCacheTtl
+    ) {
+        this.pageCache = new BoundedCache<String, Slice<?>>(pageCacheSize, pageCacheTtl)
+                .bindTo(meterRegistry, "invoice.search.page");
+        FunctionCounter.builder("invoice.search.bank.shared", bankSearches, SingleFlight::getSharedCount)
+                       .register(meterRegistry);
+    }
+
+    private static String _getOwnerPrefix(String view, String ownerId) {
+        return view + "|" + ownerId + "|";
+    }
+
+    // the "view|ownerId|" start of a cache key
+    private static String _getKeyOwnerPrefix(String key) {
+        return key.substring(0, key.indexOf('|', key.indexOf('|') + 1) + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Slice<T> _get(String view, String ownerId, InvoiceSearchCriteriaDTO dto, Supplier<Slice<T>> loader) {
+        String ownerPrefix = _getOwnerPrefix(view, ownerId);
+        String key = ownerPrefix + InvoiceSearchKey.searchKey(dto);
+        Slice<T> page = (Slice<T>) pageCache.get(key);
+        if (Objects.isNull(page)) {
+            OwnerLoads loads;
+            long generation;
+            synchronized (generationLock) {
+                loads = ownerLoads.computeIfAbsent(ownerPrefix, prefix -> new OwnerLoads());
+                loads.running++;
+                generation = loads.generation;
+            }
+            boolean loaded = false;
+            try {
+                page = loader.get();
+                loaded = true;
+            } finally {
+                synchronized (generationLock) {
+                    if (loaded && generation == loads.generation) {
+                        pageCache.put(key, page);
+                    }
+                    if (--loads.running == 0) {
+                        ownerLoads.remove(ownerPrefix);
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    public <T> Slice<T> getClientPage(String clientId, InvoiceSearchCriteriaDTO dto, Supplier<Slice<T>> loader) {
+        return _get(CLIENT, clientId, dto, loader);
+    }
+
+    public <T> Slice<T> getSupplierPage(String supplierId, InvoiceSearchCriteriaDTO dto, Supplier<Slice<T>> loader) {
+        return _get(SUPPLIER, supplierId, dto, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Slice<T> getBankPage(InvoiceSearchCriteriaDTO dto, Supplier<Slice<T>> loader) {
+        return (Slice<T>) bankSearches.execute(InvoiceSearchKey.searchKey(dto), loader::get);
+    }
+
+    // drop the pages of a client and of the suppliers of the written invoice (old and new supplier on update)
+    public void invalidate(String clientId, String... supplierIds) {
+        invalidate(Collections.singleton(clientId), Arrays.asList(supplierIds));
+    }
+
+    // drop the pages of all the given clients and suppliers in one pass over the cache
+    public void invalidate(Collection<String> clientIds, Collection<String> supplierIds) {
+        Set<String> ownerPrefixes = new HashSet<>();
+        for (String clientId : clientIds) {
+            ownerPrefixes.add(_getOwnerPrefix(CLIENT, clientId));
+        }
+        for (String supplierId : supplierIds) {
+            ownerPrefixes.add(_getOwnerPrefix(SUPPLIER, supplierId));
+        }
+        synchronized (generationLock) {
+            // an owner without a running load has no page to hold back
+            for (String ownerPrefix : ownerPrefixes) {
+                OwnerLoads loads = ownerLoads.get(ownerPrefix);
+                if (Objects.nonNull(loads)) {
+                    loads.generation++;
+                }
+            }
+            pageCache.invalidateIf(key -> ownerPrefixes.contains(_getKeyOwnerPrefix(key)));
+        }
+    }
+}
@@ -1,30 +1,62 @@
 package com.hcl.capstoneserver.invoice;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hcl.capstoneserver.invoice.dto.*;
 import com.hcl.capstoneserver.invoice.entities.Invoice;
 import com.hcl.capstoneserver.invoice.exception.*;
+import com.hcl.capstoneserver.invoice.model.BankInvoiceExportWriter;
 import com.hcl.capstoneserver.invoice.repositories.InvoiceCriteriaRepository;
 import com.hcl.capstoneserver.invoice.repositories.InvoiceRepository;
+import com.hcl.capstoneserver.user.AuthenticatedUser;
 import com.hcl.capstoneserver.user.UserService;
 import com.hcl.capstoneserver.user.UserType;
 import com.hcl.capstoneserver.user.entities.Client;
 import com.hcl.capstoneserver.user.entities.Supplier;
-import org.modelmapper.ModelMapper;
+import com.hcl.capstoneserver.user.exceptions.UserDoesNotExistException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Example;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 
 @Service
 public class InvoiceService {
 
     private final InvoiceRepository invoiceRepository;
-    private final ModelMapper mapper;
+    private final InvoiceMapper mapper;
     private final UserService userService;
     private final InvoiceCriteriaRepository invoiceCriteriaRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Scheduler invoiceStreamScheduler;
+    private final InvoiceSearchCache invoiceSearchCache;
+    private final EntityManager entityManager;
+    private final int bulkChunkSize;
+    private final Semaphore openStreams;
+    private final int statusUpdateMaxSize;
+    private final TransactionTemplate transactionTemplate;
+
+    // the only status a status update can move an invoice out of, see _checkInvoiceStatus
+    private static final Set<InvoiceStatus> UPDATABLE_STATUSES = EnumSet.of(InvoiceStatus.UPLOADED);
 
     /*
      * userId - current login user userId
@@ -32,17 +64,32 @@ public class InvoiceService {
 
     public InvoiceService(
             InvoiceRepository invoiceRepository,
-            ModelMapper mapper,
+            InvoiceMapper mapper,
             UserService userService,
-            InvoiceCriteriaRepository invoiceCriteriaRepository
+            InvoiceCriteriaRepository invoiceCriteriaRepository,
+            ObjectMapper objectMapper,
+            EntityManagerFactory entityManagerFactory,
+            Scheduler invoiceStreamScheduler,
+            InvoiceSearchCache invoiceSearchCache,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${invoice.bulk.chunk-size:500}") int bulkChunkSize,
+            @Value("${invoice.stream.max-open:4}") int maxOpenStreams,
+            @Value("${invoice.status-update.max-size:500}") int statusUpdateMaxSize
     ) {
         this.invoiceRepository = invoiceRepository;
         this.mapper = mapper;
         this.userService = userService;
         this.invoiceCriteriaRepository = invoiceCriteriaRepository;
-
-        // model mapper set to ignore the null values
-        this.mapper.getConfiguration().setSkipNullEnabled(true);
+        this.objectMapper = objectMapper;
+        this.entityManagerFactory = entityManagerFactory;
+        this.invoiceStreamScheduler = invoiceStreamScheduler;
+        this.invoiceSearchCache = invoiceSearchCache;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkChunkSize = bulkChunkSize;
+        this.openStreams = new Semaphore(maxOpenStreams);
+        this.statusUpdateMaxSize = statusUpdateMaxSize;
     }
 
     private void _checkSupplierWithExistsInvoiceNumber(Supplier supplier, String invoiceNumber) {
@@ -106,18 +153,177 @@ public class InvoiceService {
         }
     }
 
-    private Page<Invoice> _getInvoice(InvoiceSearchCriteriaDTO dto) {
-        return invoiceCriteriaRepository.findAllWithFilters(dto);
+    // only a violation of the (supplier, invoice number) constraint is a duplicate invoice number, any other is rethrown
+    private RuntimeException _getDuplicateInvoiceNumberException(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                if (constraintName != null
+                        && constraintName.toUpperCase().contains(Invoice.SUPPLIER_NUMBER_CONSTRAINT)) {
+                    return new InvoiceNumberAlreadyExistsSupplierException();
+                }
+            }
+        }
+        return e;
+    }
+
+    /*
+     * the unique (supplier, invoice number) constraint also catches two requests racing past the check above,
+     * and the version of the invoice catches a change (status update included) made after the invoice was read
+     * */
+    private Invoice _saveInvoice(Invoice invoice) {
+        try {
+            return invoiceRepository.save(invoice);
+        } catch (DataIntegrityViolationException e) {
+            throw _getDuplicateInvoiceNumberException(e);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new InvoiceConflictException();
+        }
+    }
+
+    /*
+     * Drop the cached counts and the cached pages of the clients and suppliers of a write once it is committed.
+     * Dropped before the commit, a search running in between would read and cache the old rows again.
+     * Without a transaction the write is already committed.
+     * */
+    private void _invalidateAfterCommit(Collection<String> clientIds, Collection<String> supplierIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invoiceCriteriaRepository.clearInvoiceCountCache();
+            invoiceSearchCache.invalidate(clientIds, supplierIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invoiceCriteriaRepository.clearInvoiceCountCache();
+                invoiceSearchCache.invalidate(clientIds, supplierIds);
+            }
+        });
+    }
+
+    private void _invalidateAfterCommit(String clientId, String... supplierIds) {
+        _invalidateAfterCommit(Collections.singleton(clientId), Arrays.asList(supplierIds));
+    }
+
+    private <T> Slice<T> _getInvoice(InvoiceSearchCriteriaDTO dto, Class<T> viewType) {
+        return invoiceCriteriaRepository.findAllWithFilters(dto, viewType);
+    }
+
+    /*
+     * The stream is subscribed on the invoice-stream scheduler (subscribeOn), so it is opened there and every request
+     * of the subscriber is moved to the same invoice-stream worker, which reads the next rows. The worker is not a
+     * request thread, so the rows are read with an entity manager and a transaction owned by the stream, nothing is
+     * bound to the thread. Both are closed when the stream completes, fails or is cancelled.
+     * The stream holds a database connection for as long as the subscriber reads, however slow it is, so only
+     * invoice.stream.max-open streams (fewer than the connection pool size) can be open at once,
+     * another one is refused.
+     * */
+    private <T> Flux<T> _streamInvoice(InvoiceSearchCriteriaDTO dto, Class<T> viewType) {
+        return Flux.using(
+                () -> {
+                    if (!openStreams.tryAcquire()) {
+                        throw new TooManyInvoiceStreamsException();
+                    }
+                    try {
+                        EntityManager entityManager = entityManagerFactory.createEntityManager();
+                        entityManager.getTransaction().begin();
+                        return entityManager;
+                    } catch (RuntimeException e) {
+                        openStreams.release();
+                        throw e;
+                    }
+                },
+                entityManager -> Flux.fromStream(
+                        invoiceCriteriaRepository.streamAllWithFilters(entityManager, dto, viewType)
+                ),
+                entityManager -> {
+                    try {
+                        if (entityManager.getTransaction().isActive()) {
+                            entityManager.getTransaction().rollback();
+                        }
+                        entityManager.close();
+                    } finally {
+                        openStreams.release();
+                    }
+                }
+        );
     }
 
     public ClientViewInvoiceDTO createInvoice(CreateInvoiceDTO dto, String userId) {
         Client client = userService.fetchClientDataByUserId(userId);
+        return _createInvoice(dto, client, client.getClientId());
+    }
+
+    // the client id comes from the token, so the client is only referenced and not read
+    public ClientViewInvoiceDTO createInvoice(CreateInvoiceDTO dto, AuthenticatedUser user) {
+        if (Objects.isNull(user.getClientId())) {
+            return createInvoice(dto, user.getName());
+        }
+        return _createInvoice(dto, userService.getClientReference(user), user.getClientId());
+    }
+
+    private ClientViewInvoiceDTO _createInvoice(CreateInvoiceDTO dto, Client client, String clientId) {
         Supplier supplier = userService.fetchSupplierDataBySupplierId(dto.getSupplierId());
 
         _checkSupplierWithExistsInvoiceNumber(supplier, dto.getInvoiceNumber());
         _checkInvoiceDate(dto.getInvoiceDate(), UserType.CLIENT);
 
-        return mapper.map(invoiceRepository.save(new Invoice(
+        Invoice invoice = _saveInvoice(new Invoice(
+                client,
+                supplier,
+                dto.getInvoiceNumber(),
+                dto.getInvoiceDate(),
+                dto.getAmount(),
+                dto.getStatus(),
+                dto.getCurrencyType()
+        ));
+        _invalidateAfterCommit(clientId, supplier.getSupplierId());
+        return mapper.toClientView(invoice);
+    }
+
+    private static String _getSupplierInvoiceKey(String supplierId, String invoiceNumber) {
+        return supplierId + "|" + invoiceNumber;
+    }
+
+    // the body of a bulk create is not validated, a row without a required value is reported like the other checks
+    private static void _checkRequired(CreateInvoiceDTO dto) {
+        if (Objects.isNull(dto)) {
+            throw new InvoiceRequiredException("Invoice", "invoice is required");
+        }
+        if (Objects.isNull(dto.getSupplierId()) || dto.getSupplierId().trim().isEmpty()) {
+            throw new InvoiceRequiredException("Supplier Id", "supplier id is required");
+        }
+        if (Objects.isNull(dto.getInvoiceNumber()) || dto.getInvoiceNumber().trim().isEmpty()) {
+            throw new InvoiceRequiredException("Invoice Number", "invoice number is required");
+        }
+        if (Objects.isNull(dto.getInvoiceDate())) {
+            throw new InvoiceRequiredException("Invoice Date", "invoice date is required");
+        }
+        if (Objects.isNull(dto.getAmount())) {
+            throw new InvoiceRequiredException("Amount", "amount is required");
+        }
+        if (Objects.isNull(dto.getCurrencyType())) {
+            throw new InvoiceRequiredException("Currency Type", "currency is required");
+        }
+    }
+
+    // same checks as createInvoice, on the suppliers and invoice numbers read for the whole chunk
+    private Invoice _getBulkInvoice(
+            CreateInvoiceDTO dto,
+            Client client,
+            Map<String, Supplier> suppliers,
+            Set<String> supplierInvoiceKeys
+    ) {
+        _checkRequired(dto);
+        Supplier supplier = suppliers.get(dto.getSupplierId());
+        if (Objects.isNull(supplier)) {
+            throw new UserDoesNotExistException(UserType.SUPPLIER, "supplierId");
+        }
+        _checkInvoiceDate(dto.getInvoiceDate(), UserType.CLIENT);
+        if (!supplierInvoiceKeys.add(_getSupplierInvoiceKey(dto.getSupplierId(), dto.getInvoiceNumber()))) {
+            throw new InvoiceNumberAlreadyExistsSupplierException();
+        }
+        return new Invoice(
                 client,
                 supplier,
                 dto.getInvoiceNumber(),
@@ -125,7 +331,129 @@ public class InvoiceService {
                 dto.getAmount(),
                 dto.getStatus(),
                 dto.getCurrencyType()
-        )), ClientViewInvoiceDTO.class);
+        );
+    }
+
+    /*
+     * A chunk failed on a constraint (an invoice number created by another request since the check), so its
+     * transaction is rolled back. Each invoice of it is created again in its own transaction, to tell which ones fail.
+     * The failed flush left ids and versions on the invoices, so new copies are saved.
+     * */
+    private void _createInvoicesOneByOne(List<Invoice> invoices, List<BulkCreateInvoiceResultDTO> results) {
+        for (int i = 0; i < invoices.size(); i++) {
+            Invoice failed = invoices.get(i);
+            Invoice invoice = new Invoice(
+                    failed.getClient(),
+                    failed.getSupplier(),
+                    failed.getInvoiceNumber(),
+                    failed.getInvoiceDate(),
+                    failed.getAmount(),
+                    failed.getStatus(),
+                    failed.getCurrencyType()
+            );
+            try {
+                transactionTemplate.executeWithoutResult(status -> invoiceRepository.saveAndFlush(invoice));
+                results.get(i).setInvoiceId(invoice.getInvoiceId());
+            } catch (DataIntegrityViolationException e) {
+                RuntimeException error = _getDuplicateInvoiceNumberException(e);
+                if (!(error instanceof InvoiceNumberAlreadyExistsSupplierException)) {
+                    throw error;
+                }
+                results.get(i).setError(((InvoiceNumberAlreadyExistsSupplierException) error).getStatusText());
+            }
+        }
+    }
+
+    /*
+     * Creates the invoices of a file upload, an invoice that fails a check is reported and the others are created.
+     * The rows are handled in chunks of invoice.bulk.chunk-size. For each chunk the suppliers and the existing
+     * invoice numbers are read with one query each, and the new invoices are inserted in JDBC batches on flush.
+     * Every chunk is created in its own transaction, a chunk that fails on the unique invoice number is created
+     * again invoice by invoice, so only the duplicates fail and the chunks before it are kept.
+     * The persistence context is cleared after each chunk, so it does not grow with the upload.
+     * */
+    public List<BulkCreateInvoiceResultDTO> createInvoices(List<CreateInvoiceDTO> dtos, String userId) {
+        Client client = userService.fetchClientDataByUserId(userId);
+        List<BulkCreateInvoiceResultDTO> results = new ArrayList<>(dtos.size());
+        Map<String, Supplier> suppliers = new HashMap<>();
+        Set<String> supplierInvoiceKeys = new HashSet<>();
+
+        try {
+            _createInvoices(dtos, client, results, suppliers, supplierInvoiceKeys);
+        } finally {
+            _invalidateAfterCommit(client.getClientId(), suppliers.keySet().toArray(new String[0]));
+        }
+        return results;
+    }
+
+    private void _createInvoices(
+            List<CreateInvoiceDTO> dtos,
+            Client client,
+            List<BulkCreateInvoiceResultDTO> results,
+            Map<String, Supplier> suppliers,
+            Set<String> supplierInvoiceKeys
+    ) {
+        for (int from = 0; from < dtos.size(); from += bulkChunkSize) {
+            List<CreateInvoiceDTO> chunk = dtos.subList(from, Math.min(from + bulkChunkSize, dtos.size()));
+            Set<String> supplierIds = new HashSet<>();
+            Set<String> invoiceNumbers = new HashSet<>();
+            for (CreateInvoiceDTO dto : chunk) {
+                if (Objects.nonNull(dto) && Objects.nonNull(dto.getSupplierId())
+                        && Objects.nonNull(dto.getInvoiceNumber())) {
+                    supplierIds.add(dto.getSupplierId());
+                    invoiceNumbers.add(dto.getInvoiceNumber());
+                }
+            }
+
+            Set<String> unknownSupplierIds = new HashSet<>(supplierIds);
+            unknownSupplierIds.removeAll(suppliers.keySet());
+            if (!unknownSupplierIds.isEmpty()) {
+                suppliers.putAll(userService.fetchSuppliersBySupplierIds(unknownSupplierIds));
+            }
+            if (!supplierIds.isEmpty()) {
+                for (Object[] supplierInvoice : invoiceRepository.findSupplierInvoiceNumbers(
+                        supplierIds,
+                        invoiceNumbers
+                )) {
+                    supplierInvoiceKeys.add(
+                            _getSupplierInvoiceKey((String) supplierInvoice[0], (String) supplierInvoice[1])
+                    );
+                }
+            }
+
+            List<Invoice> invoices = new ArrayList<>(chunk.size());
+            List<BulkCreateInvoiceResultDTO> created = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                CreateInvoiceDTO dto = chunk.get(i);
+                BulkCreateInvoiceResultDTO result = new BulkCreateInvoiceResultDTO(
+                        from + i,
+                        null,
+                        Objects.isNull(dto) ? null : dto.getSupplierId(),
+                        Objects.isNull(dto) ? null : dto.getInvoiceNumber(),
+                        null
+                );
+                try {
+                    invoices.add(_getBulkInvoice(dto, client, suppliers, supplierInvoiceKeys));
+                    created.add(result);
+                } catch (HttpClientErrorException e) {
+                    result.setError(e.getStatusText());
+                }
+                results.add(result);
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    invoiceRepository.saveAll(invoices);
+                    invoiceRepository.flush();
+                });
+                for (int i = 0; i < invoices.size(); i++) {
+                    created.get(i).setInvoiceId(invoices.get(i).getInvoiceId());
+                }
+            } catch (DataIntegrityViolationException e) {
+                _createInvoicesOneByOne(invoices, created);
+            }
+            entityManager.clear();
+        }
     }
 
     // This update method for client
@@ -148,46 +476,226 @@ public class InvoiceService {
         _checkSupplierWithExistsInvoiceNumber(supplier, invoiceNumber);
         _checkInvoiceStatus(invoice.getStatus(), "update");
 
-        mapper.map(dto, invoice);
-        return mapper.map(invoiceRepository.save(invoice), ClientViewInvoiceDTO.class);
+        String oldSupplierId = invoice.getSupplier().getSupplierId();
+        mapper.update(dto, supplier, invoice);
+        invoice = _saveInvoice(invoice);
+        _invalidateAfterCommit(
+                invoice.getClient().getClientId(),
+                oldSupplierId,
+                supplier.getSupplierId()
+        );
+        return mapper.toClientView(invoice);
     }
 
-    // This method use only Bank
+    /*
+     * This method use only Bank
+     * The status is changed with one conditional update, the database checks the rules on the current row, so two
+     * requests can not both move the same invoice. The invoice is only read when it is not updated, to tell why.
+     * */
+    @Transactional
     public BankViewInvoiceDTO statusUpdate(StatusUpdateInvoiceDTO dto, String userId) {
         // need to check userId account type -> This feature currently unavailable
         // One feature needs to be check when BANK user is created: invoice status can update only by BANK
-        Invoice invoice = _fetchInvoiceById(dto.getInvoiceId());
-        _checkInvoiceDate(invoice.getInvoiceDate(), UserType.BANK);
-        _checkInvoiceStatus(invoice.getStatus(), "update");
-        mapper.map(dto, invoice);
-        return mapper.map(invoiceRepository.save(invoice), BankViewInvoiceDTO.class);
+        if (Objects.isNull(dto.getStatus())) {
+            throw new InvoiceStatusException("status is required");
+        }
+        int updated = invoiceRepository.updateStatuses(
+                Collections.singleton(dto.getInvoiceId()),
+                dto.getStatus(),
+                UPDATABLE_STATUSES,
+                LocalDate.now()
+        );
+        if (updated == 0) {
+            Invoice invoice = _fetchInvoiceById(dto.getInvoiceId());
+            _checkInvoiceDate(invoice.getInvoiceDate(), UserType.BANK);
+            _checkInvoiceStatus(invoice.getStatus(), "update");
+            throw new InvoiceConflictException();
+        }
+
+        BankViewInvoiceDTO invoice = invoiceRepository
+                .findBankViewById(dto.getInvoiceId())
+                .orElseThrow(() -> new InvoiceNotFoundException("Invoice is not found."));
+        _invalidateAfterCommit(invoice.getClient().getClientId(), invoice.getSupplier().getSupplierId());
+        return invoice;
+    }
+
+    /*
+     * This method use only Bank, for review many invoices at once.
+     * The invoices are read and locked with one select, the ones that break the rules of statusUpdate are reported,
+     * and the others are updated with one UPDATE per requested status. The UPDATE repeats the rules in its where.
+     * When an invoice is asked more than once the last valid request wins, like a run of statusUpdate calls.
+     * Every invoice of the batch is locked until the end of its transaction, so the size of a batch is checked
+     * before the transaction starts: it is at least 1 and at most invoice.status-update.max-size.
+     * */
+    public List<BulkStatusUpdateResultDTO> statusUpdates(List<StatusUpdateInvoiceDTO> dtos, String userId) {
+        if (Objects.isNull(dtos) || dtos.isEmpty()) {
+            throw new InvoiceBatchSizeException("At least one invoice is required.");
+        }
+        if (dtos.size() > statusUpdateMaxSize) {
+            throw new InvoiceBatchSizeException(
+                    String.format("At most %d invoices can be updated at once.", statusUpdateMaxSize)
+            );
+        }
+        return transactionTemplate.execute(status -> _statusUpdates(dtos));
+    }
+
+    private List<BulkStatusUpdateResultDTO> _statusUpdates(List<StatusUpdateInvoiceDTO> dtos) {
+        Set<Integer> invoiceIds = new HashSet<>();
+        for (StatusUpdateInvoiceDTO dto : dtos) {
+            invoiceIds.add(dto.getInvoiceId());
+        }
+        // invoiceId -> [invoiceId, invoiceDate, status, clientId, supplierId]
+        Map<Integer, Object[]> invoices = new HashMap<>();
+        for (Object[] invoice : invoiceRepository.findStatusesForUpdate(invoiceIds)) {
+            invoices.put((Integer) invoice[0], invoice);
+        }
+
+        List<BulkStatusUpdateResultDTO> results = new ArrayList<>(dtos.size());
+        Map<Integer, InvoiceStatus> newStatuses = new LinkedHashMap<>();
+        for (StatusUpdateInvoiceDTO dto : dtos) {
+            BulkStatusUpdateResultDTO result = new BulkStatusUpdateResultDTO(dto.getInvoiceId(), dto.getStatus(), null);
+            Object[] invoice = invoices.get(dto.getInvoiceId());
+            try {
+                if (Objects.isNull(invoice)) {
+                    throw new InvoiceNotFoundException("Invoice is not found.");
+                }
+                if (Objects.isNull(dto.getStatus())) {
+                    throw new InvoiceStatusException("status is required");
+                }
+                _checkInvoiceDate((LocalDate) invoice[1], UserType.BANK);
+                _checkInvoiceStatus(
+                        newStatuses.getOrDefault(dto.getInvoiceId(), (InvoiceStatus) invoice[2]),
+                        "update"
+                );
+                newStatuses.put(dto.getInvoiceId(), dto.getStatus());
+            } catch (HttpClientErrorException e) {
+                result.setError(e.getStatusText());
+            }
+            results.add(result);
+        }
+
+        Map<InvoiceStatus, List<Integer>> updates = new EnumMap<>(InvoiceStatus.class);
+        Set<String> clientIds = new HashSet<>();
+        Set<String> supplierIds = new HashSet<>();
+        for (Map.Entry<Integer, InvoiceStatus> newStatus : newStatuses.entrySet()) {
+            updates.computeIfAbsent(newStatus.getValue(), status -> new ArrayList<>()).add(newStatus.getKey());
+            Object[] invoice = invoices.get(newStatus.getKey());
+            clientIds.add((String) invoice[3]);
+            supplierIds.add((String) invoice[4]);
+        }
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<InvoiceStatus, List<Integer>> update : updates.entrySet()) {
+            invoiceRepository.updateStatuses(update.getValue(), update.getKey(), UPDATABLE_STATUSES, today);
+        }
+
+        _invalidateAfterCommit(clientIds, supplierIds);
+        return results;
     }
 
+    /*
+     * The invoice is deleted by one conditional DELETE, the status read with the invoice is not trusted: the bank can
+     * move it to IN_REVIEW after the read. When no row is deleted, the invoice is read again to report why.
+     * */
+    @Transactional
     public Long deleteInvoice(Integer invoiceId, String userId) {
         Invoice invoice = _checkInvoiceOwnershipAndFetchInvoice(userId, invoiceId, "delete");
-        if (invoice.getStatus() == InvoiceStatus.IN_REVIEW) {
-            _checkInvoiceStatus(InvoiceStatus.IN_REVIEW, "delete");
+        if (invoiceRepository.deleteUnlessStatus(invoiceId, InvoiceStatus.IN_REVIEW) == 0) {
+            _checkInvoiceStatus(_fetchInvoiceById(invoiceId).getStatus(), "delete");
+            throw new InvoiceConflictException();
         }
-        invoiceRepository.delete(invoice);
+        _invalidateAfterCommit(invoice.getClient().getClientId(), invoice.getSupplier().getSupplierId());
         return invoiceRepository.count();
     }
 
     // This function use BANK for get all invoice
-    public Page<BankViewInvoiceDTO> getBankInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
+    public Slice<BankViewInvoiceDTO> getBankInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
         // need to check userId account type -> This feature currently unavailable
         // One feature needs to be check when BANK user is created: invoice status can update only by BANK
-        return _getInvoice(dto).map(invoice -> mapper.map(invoice, BankViewInvoiceDTO.class));
+        return invoiceSearchCache.getBankPage(dto, () -> _getInvoice(dto, BankViewInvoiceDTO.class));
+    }
+
+    /*
+     * This function use BANK for export every invoice of the search, without paging.
+     * Rows are written to the output while they are read, the transaction keeps the database cursor open.
+     * */
+    @Transactional(readOnly = true)
+    public void exportBankInvoice(
+            InvoiceSearchCriteriaDTO dto,
+            InvoiceExportFormat format,
+            OutputStream outputStream,
+            String userId
+    ) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        BankInvoiceExportWriter exportWriter = new BankInvoiceExportWriter(format, writer, objectMapper);
+        exportWriter.writeHeader();
+        try (Stream<BankViewInvoiceDTO> invoices = invoiceCriteriaRepository.streamAllWithFilters(
+                dto,
+                BankViewInvoiceDTO.class
+        )) {
+            Iterator<BankViewInvoiceDTO> iterator = invoices.iterator();
+            while (iterator.hasNext()) {
+                exportWriter.write(iterator.next());
+            }
+        }
+        writer.flush();
+    }
+
+    // This function use BANK for get all invoice as a stream, without paging
+    public Flux<BankViewInvoiceDTO> streamBankInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
+        return _streamInvoice(dto, BankViewInvoiceDTO.class).subscribeOn(invoiceStreamScheduler);
+    }
+
+    // This function use Client for get his/ her all invoice as a stream, without paging
+    public Flux<ClientViewInvoiceDTO> streamClientInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
+        return streamClientInvoice(dto, new AuthenticatedUser(userId, null, null));
+    }
+
+    public Flux<ClientViewInvoiceDTO> streamClientInvoice(InvoiceSearchCriteriaDTO dto, AuthenticatedUser user) {
+        return Flux.defer(() -> {
+            dto.setClientId(userService.getClientId(user));
+            return _streamInvoice(dto, ClientViewInvoiceDTO.class);
+        }).subscribeOn(invoiceStreamScheduler);
+    }
+
+    // This function use Supplier for get his/ her all invoice as a stream, without paging
+    public Flux<SupplierVIewInvoiceDTO> streamSupplierInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
+        return streamSupplierInvoice(dto, new AuthenticatedUser(userId, null, null));
+    }
+
+    public Flux<SupplierVIewInvoiceDTO> streamSupplierInvoice(InvoiceSearchCriteriaDTO dto, AuthenticatedUser user) {
+        return Flux.defer(() -> {
+            dto.setSupplierId(userService.getSupplierId(user));
+            return _streamInvoice(dto, SupplierVIewInvoiceDTO.class);
+        }).subscribeOn(invoiceStreamScheduler);
     }
 
     // This function use Client for get his/ her all invoice
-    public Page<ClientViewInvoiceDTO> getClientInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
-        dto.setClientId(userService.getClientId(userId));
-        return _getInvoice(dto).map(invoice -> mapper.map(invoice, ClientViewInvoiceDTO.class));
+    public Slice<ClientViewInvoiceDTO> getClientInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
+        return getClientInvoice(dto, new AuthenticatedUser(userId, null, null));
+    }
+
+    // the client id is read from the token claims when the token has it
+    public Slice<ClientViewInvoiceDTO> getClientInvoice(InvoiceSearchCriteriaDTO dto, AuthenticatedUser user) {
+        dto.setClientId(userService.getClientId(user));
+        return invoiceSearchCache.getClientPage(
+                dto.getClientId(),
+                dto,
+                () -> _getInvoice(dto, ClientViewInvoiceDTO.class)
+        );
     }
 
     // This function use Supplier for get his/ her all invoice
-    public Page<SupplierVIewInvoiceDTO> getSupplierInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
-        dto.setSupplierId(userService.getSupplierId(userId));
-        return _getInvoice(dto).map(invoice -> mapper.map(invoice, SupplierVIewInvoiceDTO.class));
+    public Slice<SupplierVIewInvoiceDTO> getSupplierInvoice(InvoiceSearchCriteriaDTO dto, String userId) {
+        return getSupplierInvoice(dto, new AuthenticatedUser(userId, null, null));
+    }
+
+    // the supplier id is read from the token claims when the token has it
+    public Slice<SupplierVIewInvoiceDTO> getSupplierInvoice(InvoiceSearchCriteriaDTO dto, AuthenticatedUser user) {
+        dto.setSupplierId(userService.getSupplierId(user));
+        return invoiceSearchCache.getSupplierPage(
+                dto.getSupplierId(),
+                dto,
+                () -> _getInvoice(dto, SupplierVIewInvoiceDTO.class)
+        );
     }
 }
\ No newline at end of file
@@ -40,6 +40,31 @@ public class BankViewInvoiceDTO {
         this.currencyType = currencyType;
     }
 
+    // used by the projection queries, which select flat columns
+    public BankViewInvoiceDTO(
+            Integer invoiceId,
+            String clientId,
+            String clientName,
+            String supplierId,
+            String supplierName,
+            String invoiceNumber,
+            LocalDate invoiceDate,
+            Double amount,
+            InvoiceStatus status,
+            CurrencyType currencyType
+    ) {
+        this(
+                invoiceId,
+                new ClientDataViewDTO(clientId, clientName),
+                new SupplierDataViewDTO(supplierId, supplierName),
+                invoiceNumber,
+                invoiceDate,
+                amount,
+                status,
+                currencyType
+        );
+    }
+
     public Integer getInvoiceId() {
         return invoiceId;
     }
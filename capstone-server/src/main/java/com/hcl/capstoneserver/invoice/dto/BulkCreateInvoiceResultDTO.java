@@ -0,0 +1,69 @@
+package com.hcl.capstoneserver.invoice.dto;
+
+public class BulkCreateInvoiceResultDTO {
+    // index of the invoice in the request, or its line in the file for a csv import
+    private Integer row;
+    // null when the invoice is not created
+    private Integer invoiceId;
+    private String supplierId;
+    private String invoiceNumber;
+    // why the invoice is not created, null when it is created
+    private String error;
+
+    public BulkCreateInvoiceResultDTO() {
+    }
+
+    public BulkCreateInvoiceResultDTO(
+            Integer row,
+            Integer invoiceId,
+            String supplierId,
+            String invoiceNumber,
+            String error
+    ) {
+        this.row = row;
+        this.invoiceId = invoiceId;
+        this.supplierId = supplierId;
+        this.invoiceNumber = invoiceNumber;
+        this.error = error;
+    }
+
+    public Integer getRow() {
+        return row;
+    }
+
+    public void setRow(Integer row) {
+        this.row = row;
+    }
+
+    public Integer getInvoiceId() {
+        return invoiceId;
+    }
+
+    public void setInvoiceId(Integer invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    public void setSupplierId(String supplierId) {
+        this.supplierId = supplierId;
+    }
+
+    public String getInvoiceNumber() {
+        return invoiceNumber;
+    }
+
+    public void setInvoiceNumber(String invoiceNumber) {
+        this.invoiceNumber = invoiceNumber;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
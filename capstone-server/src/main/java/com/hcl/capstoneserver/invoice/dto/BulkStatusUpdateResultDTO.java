@@ -0,0 +1,44 @@
+package com.hcl.capstoneserver.invoice.dto;
+
+import com.hcl.capstoneserver.invoice.InvoiceStatus;
+
+public class BulkStatusUpdateResultDTO {
+    private Integer invoiceId;
+    // the requested status
+    private InvoiceStatus status;
+    // why the invoice is skipped, null when it is updated
+    private String error;
+
+    public BulkStatusUpdateResultDTO() {
+    }
+
+    public BulkStatusUpdateResultDTO(Integer invoiceId, InvoiceStatus status, String error) {
+        this.invoiceId = invoiceId;
+        this.status = status;
+        this.error = error;
+    }
+
+    public Integer getInvoiceId() {
+        return invoiceId;
+    }
+
+    public void setInvoiceId(Integer invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+
+    public InvoiceStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(InvoiceStatus status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -36,6 +36,28 @@ public class ClientViewInvoiceDTO {
         this.currencyType = currencyType;
     }
 
+    // used by the projection queries, which select flat columns
+    public ClientViewInvoiceDTO(
+            Integer invoiceId,
+            String supplierId,
+            String supplierName,
+            String invoiceNumber,
+            LocalDate invoiceDate,
+            Double amount,
+            InvoiceStatus status,
+            CurrencyType currencyType
+    ) {
+        this(
+                invoiceId,
+                new SupplierDataViewDTO(supplierId, supplierName),
+                invoiceNumber,
+                invoiceDate,
+                amount,
+                status,
+                currencyType
+        );
+    }
+
     public Integer getInvoiceId() {
         return invoiceId;
     }
@@ -1,6 +1,7 @@
 package com.hcl.capstoneserver.invoice.dto;
 
 import com.hcl.capstoneserver.invoice.CurrencyType;
+import com.hcl.capstoneserver.invoice.InvoiceCountMode;
 import com.hcl.capstoneserver.invoice.InvoiceStatus;
 import com.hcl.capstoneserver.invoice.model.InvoicePage;
 import org.springframework.data.domain.Sort;
@@ -17,6 +18,7 @@ public class InvoiceSearchCriteriaDTO extends InvoicePage {
     private Long ageing;
     private List<InvoiceStatus> status;
     private List<CurrencyType> currencyType;
+    private InvoiceCountMode countMode = InvoiceCountMode.EXACT;
 
     public InvoiceSearchCriteriaDTO() {
         super();
@@ -110,4 +112,12 @@ public class InvoiceSearchCriteriaDTO extends InvoicePage {
     public void setCurrencyType(List<CurrencyType> currencyType) {
         this.currencyType = currencyType;
     }
+
+    public InvoiceCountMode getCountMode() {
+        return countMode;
+    }
+
+    public void setCountMode(InvoiceCountMode countMode) {
+        this.countMode = countMode;
+    }
 }
@@ -36,6 +36,28 @@ public class SupplierVIewInvoiceDTO {
         this.currencyType = currencyType;
     }
 
+    // used by the projection queries, which select flat columns
+    public SupplierVIewInvoiceDTO(
+            Integer invoiceId,
+            String clientId,
+            String clientName,
+            String invoiceNumber,
+            LocalDate invoiceDate,
+            Double amount,
+            InvoiceStatus status,
+            CurrencyType currencyType
+    ) {
+        this(
+                invoiceId,
+                new ClientDataViewDTO(clientId, clientName),
+                invoiceNumber,
+                invoiceDate,
+                amount,
+                status,
+                currencyType
+        );
+    }
+
     public Integer getInvoiceId() {
         return invoiceId;
     }
@@ -4,14 +4,38 @@ import com.hcl.capstoneserver.invoice.CurrencyType;
 import com.hcl.capstoneserver.invoice.InvoiceStatus;
 import com.hcl.capstoneserver.user.entities.Client;
 import com.hcl.capstoneserver.user.entities.Supplier;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDate;
 
 @Entity
+@Table(
+        // composite indexes follow the predicates of InvoiceCriteriaRepository: the owner first, then status and date
+        indexes = {
+                @Index(name = "IDX_INVOICE_CLIENT_SEARCH", columnList = "CLIENT_ID, status, invoiceDate, currencyType"),
+                @Index(name = "IDX_INVOICE_SUPPLIER_SEARCH", columnList = "SUPPLIER_ID, status, invoiceDate, currencyType"),
+                @Index(name = "IDX_INVOICE_STATUS_DATE", columnList = "status, invoiceDate")
+        },
+        uniqueConstraints = @UniqueConstraint(
+                name = Invoice.SUPPLIER_NUMBER_CONSTRAINT,
+                columnNames = {"SUPPLIER_ID", "invoiceNumber"}
+        )
+)
+@NamedEntityGraph(
+        name = Invoice.WITH_PARTIES_GRAPH,
+        attributeNodes = {@NamedAttributeNode("client"), @NamedAttributeNode("supplier")}
+)
 public class Invoice {
+    // loads the client and the supplier in the same select as the invoice
+    public static final String WITH_PARTIES_GRAPH = "Invoice.withParties";
+    // one invoice number per supplier
+    public static final String SUPPLIER_NUMBER_CONSTRAINT = "UK_INVOICE_SUPPLIER_NUMBER";
+
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_sequence")
+    @GenericGenerator(name = "invoice_sequence", strategy = "com.hcl.capstoneserver.generator.id.InvoiceIdGenerator")
     private Integer invoiceId;
     @ManyToOne
     @JoinColumn(name = "CLIENT_ID", nullable = false)
@@ -24,6 +48,9 @@ public class Invoice {
     private Double amount;
     private InvoiceStatus status;
     private CurrencyType currencyType;
+    // every update checks and moves the version, an update of a stale copy fails instead of overwriting
+    @Version
+    private Long version;
 
     public Invoice() {
     }
@@ -110,6 +137,14 @@ public class Invoice {
         this.currencyType = currencyType;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Invoice{" +
@@ -0,0 +1,18 @@
+package com.hcl.capstoneserver.invoice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InvoiceConflictException extends HttpClientErrorException {
+    private final String FIELD = "Invoice";
+
+    public InvoiceConflictException() {
+        super(HttpStatus.CONFLICT, "This invoice is changed by another request, please try again.");
+    }
+
+    public String getField() {
+        return FIELD;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hcl.capstoneserver.invoice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+public class InvoiceImportException extends HttpClientErrorException {
+    private final String FIELD = "Import";
+
+    public InvoiceImportException(HttpStatus status, String msg) {
+        super(status, msg);
+    }
+
+    public String getField() {
+        return FIELD;
+    }
+}
@@ -0,0 +1,19 @@
+package com.hcl.capstoneserver.invoice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvoiceRequiredException extends HttpClientErrorException {
+    private final String field;
+
+    public InvoiceRequiredException(String field, String msg) {
+        super(HttpStatus.BAD_REQUEST, msg);
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
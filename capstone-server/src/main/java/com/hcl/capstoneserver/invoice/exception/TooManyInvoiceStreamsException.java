@@ -0,0 +1,12 @@
+package com.hcl.capstoneserver.invoice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyInvoiceStreamsException extends HttpClientErrorException {
+    public TooManyInvoiceStreamsException() {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many invoice streams are open, please try again later.");
+    }
+}
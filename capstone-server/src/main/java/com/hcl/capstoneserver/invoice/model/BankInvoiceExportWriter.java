@@ -0,0 +1,79 @@
+package com.hcl.capstoneserver.invoice.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hcl.capstoneserver.invoice.InvoiceExportFormat;
+import com.hcl.capstoneserver.invoice.dto.BankViewInvoiceDTO;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/*
+ * Writes bank invoice rows one by one to the export output, nothing is kept after a row is written.
+ * */
+public class BankInvoiceExportWriter {
+    private static final String CSV_HEADER =
+            "invoiceId,clientId,clientName,supplierId,supplierName,invoiceNumber,invoiceDate,amount,status,currencyType";
+
+    private final InvoiceExportFormat format;
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+
+    public BankInvoiceExportWriter(InvoiceExportFormat format, Writer writer, ObjectMapper objectMapper) {
+        this.format = format;
+        this.writer = writer;
+        this.objectMapper = objectMapper;
+    }
+
+    // quote the value when it holds a separator, a quote or a line break
+    private void _writeCsvValue(Object value) throws IOException {
+        if (Objects.isNull(value)) {
+            return;
+        }
+        String text = String.valueOf(value);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void _writeCsvRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            _writeCsvValue(values[i]);
+        }
+        writer.write('\n');
+    }
+
+    public void writeHeader() throws IOException {
+        if (format == InvoiceExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    public void write(BankViewInvoiceDTO invoice) throws IOException {
+        if (format == InvoiceExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(invoice));
+            writer.write('\n');
+            return;
+        }
+        _writeCsvRow(
+                invoice.getInvoiceId(),
+                invoice.getClient().getClientId(),
+                invoice.getClient().getName(),
+                invoice.getSupplier().getSupplierId(),
+                invoice.getSupplier().getName(),
+                invoice.getInvoiceNumber(),
+                invoice.getInvoiceDate(),
+                invoice.getAmount(),
+                invoice.getStatus(),
+                invoice.getCurrencyType()
+        );
+    }
+}
@@ -0,0 +1,26 @@
+package com.hcl.capstoneserver.invoice.model;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+// page that also carries the continuation token of the next page (null on the last page)
+public class CursorPage<T> extends PageImpl<T> {
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, Pageable pageable, long total, String nextCursor) {
+        super(content, pageable, total);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public <U> CursorPage<U> map(Function<? super T, ? extends U> converter) {
+        return new CursorPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), nextCursor);
+    }
+}
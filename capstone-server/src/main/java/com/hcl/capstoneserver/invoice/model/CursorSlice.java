@@ -0,0 +1,26 @@
+package com.hcl.capstoneserver.invoice.model;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+// slice (no total count) that also carries the continuation token of the next page (null when there is none)
+public class CursorSlice<T> extends SliceImpl<T> {
+    private final String nextCursor;
+
+    public CursorSlice(List<T> content, Pageable pageable, boolean hasNext, String nextCursor) {
+        super(content, pageable, hasNext);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public <U> CursorSlice<U> map(Function<? super T, ? extends U> converter) {
+        return new CursorSlice<>(getConvertedContent(converter), getPageable(), hasNext(), nextCursor);
+    }
+}
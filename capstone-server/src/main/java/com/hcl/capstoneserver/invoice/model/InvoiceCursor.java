@@ -0,0 +1,88 @@
+package com.hcl.capstoneserver.invoice.model;
+
+import com.hcl.capstoneserver.invoice.exception.InvoiceCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/*
+ * Opaque continuation token for keyset pagination.
+ * It holds the sort value and the invoiceId of the last row of a page, the next page starts right after that row.
+ * */
+public class InvoiceCursor {
+    private static final String SEPARATOR = "\n";
+
+    private final String sortBy;
+    private final Sort.Direction sortDirection;
+    private final Integer invoiceId;
+    private final String sortValue;
+
+    public InvoiceCursor(String sortBy, Sort.Direction sortDirection, Integer invoiceId, Object sortValue) {
+        this.sortBy = sortBy;
+        this.sortDirection = sortDirection;
+        this.invoiceId = invoiceId;
+        this.sortValue = sortValue instanceof Enum ? ((Enum<?>) sortValue).name() : String.valueOf(sortValue);
+    }
+
+    public static InvoiceCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, 4);
+            return new InvoiceCursor(
+                    parts[0],
+                    Sort.Direction.valueOf(parts[1]),
+                    Integer.valueOf(parts[2]),
+                    parts[3]
+            );
+        } catch (RuntimeException ex) {
+            throw new InvoiceCursorException("Invalid cursor.");
+        }
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sortBy, sortDirection.name(), invoiceId.toString(), sortValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // check the cursor was issued for the same ordering as the current request
+    public void checkOrder(String sortBy, Sort.Direction sortDirection) {
+        if (!this.sortBy.equals(sortBy) || this.sortDirection != sortDirection) {
+            throw new InvoiceCursorException("The cursor does not match the requested sort order.");
+        }
+    }
+
+    // convert the stored sort value back to the type of the sorted attribute
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparable<?> getSortValue(Class<?> type) {
+        try {
+            if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, sortValue);
+            } else if (Integer.class.equals(type)) {
+                return Integer.valueOf(sortValue);
+            } else if (Double.class.equals(type)) {
+                return Double.valueOf(sortValue);
+            } else if (LocalDate.class.equals(type)) {
+                return LocalDate.parse(sortValue);
+            } else if (String.class.equals(type)) {
+                return sortValue;
+            }
+        } catch (RuntimeException ex) {
+            throw new InvoiceCursorException("Invalid cursor.");
+        }
+        throw new InvoiceCursorException(String.format("Can not use a cursor when sorting by %s.", sortBy));
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public Sort.Direction getSortDirection() {
+        return sortDirection;
+    }
+
+    public Integer getInvoiceId() {
+        return invoiceId;
+    }
+}
@@ -0,0 +1,96 @@
+package com.hcl.capstoneserver.invoice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.hcl.capstoneserver.invoice.InvoiceImportStatus;
+import com.hcl.capstoneserver.invoice.dto.BulkCreateInvoiceResultDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Progress and error report of a csv invoice import, it is updated by the import worker and read by the status calls.
+ * Only the first maxErrors rejected rows are kept in the report, the others are only counted.
+ * */
+public class InvoiceImportJob {
+    private final String jobId;
+    private final String userId;
+    private final int maxErrors;
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final List<BulkCreateInvoiceResultDTO> errors = new ArrayList<>();
+    private volatile InvoiceImportStatus status = InvoiceImportStatus.QUEUED;
+    private volatile String message;
+
+    public InvoiceImportJob(String jobId, String userId, int maxErrors) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.maxErrors = maxErrors;
+    }
+
+    public void addRows(long count) {
+        rows.addAndGet(count);
+    }
+
+    public void addCreated(long count) {
+        created.addAndGet(count);
+    }
+
+    public void addError(BulkCreateInvoiceResultDTO error) {
+        rejected.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            }
+        }
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    @JsonIgnore
+    public String getUserId() {
+        return userId;
+    }
+
+    public InvoiceImportStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(InvoiceImportStatus status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public List<BulkCreateInvoiceResultDTO> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    // true when more rows are rejected than the report keeps
+    public boolean isErrorsTruncated() {
+        return getRejected() > maxErrors;
+    }
+}
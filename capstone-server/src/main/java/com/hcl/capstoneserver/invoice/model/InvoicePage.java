@@ -7,6 +7,8 @@ public class InvoicePage {
     private Integer pageSize;
     private Sort.Direction sortDirection;
     private String sortBy;
+    // continuation token of keyset pagination, when it is set pageIndex is not used to skip rows
+    private String cursor;
 
     public InvoicePage() {
         this.pageIndex = 0;
@@ -53,4 +55,12 @@ public class InvoicePage {
     public void setSortBy(String sortBy) {
         this.sortBy = sortBy;
     }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
@@ -0,0 +1,55 @@
+package com.hcl.capstoneserver.invoice.model;
+
+import com.hcl.capstoneserver.invoice.dto.InvoiceSearchCriteriaDTO;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ * Builds normalized keys of invoice searches, two searches with the same key read the same rows.
+ * Multi value filters are matched as sets, so their order and duplicates are not part of the key.
+ * */
+public final class InvoiceSearchKey {
+
+    private InvoiceSearchKey() {
+    }
+
+    private static String _getSetKey(Collection<? extends Enum<?>> values) {
+        if (Objects.isNull(values)) {
+            return null;
+        }
+        return values.stream().map(Enum::name).distinct().sorted().collect(Collectors.joining(","));
+    }
+
+    // key of the filters only, used for the rows count
+    public static String filterKey(InvoiceSearchCriteriaDTO dto) {
+        LocalDate ageingDate = Objects.isNull(dto.getAgeing()) ? null : LocalDate.now().plusDays(-dto.getAgeing());
+        return String.join(
+                "|",
+                String.valueOf(dto.getClientId()),
+                String.valueOf(dto.getSupplierId()),
+                String.valueOf(dto.getInvoiceNumber()),
+                String.valueOf(dto.getDateFrom()),
+                String.valueOf(dto.getDateTo()),
+                String.valueOf(ageingDate),
+                String.valueOf(_getSetKey(dto.getStatus())),
+                String.valueOf(_getSetKey(dto.getCurrencyType()))
+        );
+    }
+
+    // key of the filters and of the requested page, used for the page results
+    public static String searchKey(InvoiceSearchCriteriaDTO dto) {
+        return String.join(
+                "|",
+                filterKey(dto),
+                String.valueOf(dto.getPageIndex()),
+                String.valueOf(dto.getPageSize()),
+                String.valueOf(dto.getSortDirection()),
+                String.valueOf(dto.getSortBy()),
+                String.valueOf(dto.getCursor()),
+                String.valueOf(dto.getCountMode())
+        );
+    }
+}
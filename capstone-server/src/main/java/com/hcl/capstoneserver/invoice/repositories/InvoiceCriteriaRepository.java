@@ -1,34 +1,113 @@
 package com.hcl.capstoneserver.invoice.repositories;
 
-import com.hcl.capstoneserver.invoice.CurrencyType;
-import com.hcl.capstoneserver.invoice.InvoiceStatus;
+import com.hcl.capstoneserver.invoice.InvoiceCountMode;
+import com.hcl.capstoneserver.invoice.dto.BankViewInvoiceDTO;
+import com.hcl.capstoneserver.invoice.dto.ClientViewInvoiceDTO;
 import com.hcl.capstoneserver.invoice.dto.InvoiceSearchCriteriaDTO;
+import com.hcl.capstoneserver.invoice.dto.SupplierVIewInvoiceDTO;
 import com.hcl.capstoneserver.invoice.entities.Invoice;
+import com.hcl.capstoneserver.invoice.exception.InvoiceSortException;
+import com.hcl.capstoneserver.invoice.model.CursorPage;
+import com.hcl.capstoneserver.invoice.model.CursorSlice;
+import com.hcl.capstoneserver.invoice.model.InvoiceCursor;
+import com.hcl.capstoneserver.invoice.model.InvoiceSearchKey;
+import com.hcl.capstoneserver.user.entities.Client;
+import com.hcl.capstoneserver.user.entities.Supplier;
+import com.hcl.capstoneserver.util.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
+import javax.persistence.criteria.*;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Repository
 public class InvoiceCriteriaRepository {
 
+    private static final String INVOICE_ID = "invoiceId";
+    private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+    // scalar attributes of the invoice, they are in the entity and in every view, so a cursor can hold their value
+    private static final Set<String> SORTABLE_ATTRIBUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            INVOICE_ID,
+            "invoiceNumber",
+            "invoiceDate",
+            "amount",
+            "status",
+            "currencyType"
+    )));
+
     private final EntityManager entityManager;
     private final CriteriaBuilder criteriaBuilder;
+    private final BoundedCache<String, Long> invoiceCountCache;
+    private final int exportFetchSize;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ExecutorService invoiceCountExecutor;
+    private final boolean parallelCount;
+    private final Semaphore countPermits;
+    // number of count cache clears, a count started before a clear is not cached, see _startInvoiceCount
+    private long countGeneration;
+    private final Object countGenerationLock = new Object();
 
     public InvoiceCriteriaRepository(
-            EntityManager entityManager
+            EntityManager entityManager,
+            MeterRegistry meterRegistry,
+            @Value("${invoice.search.count-cache.size:1000}") int countCacheSize,
+            @Value("${invoice.search.count-cache.ttl:60000}") long countCacheTtl,
+            @Value("${invoice.export.fetch-size:500}") int exportFetchSize,
+            EntityManagerFactory entityManagerFactory,
+            @Qualifier("invoiceCountExecutor") ExecutorService invoiceCountExecutor,
+            @Value("${invoice.search.parallel-count:true}") boolean parallelCount,
+            @Value("${invoice.search.parallel-count-permits:4}") int parallelCountPermits
     ) {
         this.entityManager = entityManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.invoiceCountExecutor = invoiceCountExecutor;
+        this.parallelCount = parallelCount;
+        this.countPermits = new Semaphore(parallelCountPermits);
         this.criteriaBuilder = entityManager.getCriteriaBuilder();
+        this.invoiceCountCache = new BoundedCache<String, Long>(countCacheSize, countCacheTtl)
+                .bindTo(meterRegistry, "invoice.search.count");
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    private void _checkSortBy(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO) {
+        if (!SORTABLE_ATTRIBUTES.contains(invoiceSearchCriteriaDTO.getSortBy())) {
+            throw new InvoiceSortException(String.format(
+                    "Can not sort by %s.",
+                    invoiceSearchCriteriaDTO.getSortBy()
+            ));
+        }
+    }
+
+    /*
+     * The client or supplier of the invoice. When the view selection has joined it, the filter goes through the same
+     * join, a path from the root would be a second join of the same table.
+     * */
+    private static Path<?> _getPartyPath(Root<Invoice> invoiceRoot, String attribute) {
+        for (Join<Invoice, ?> join : invoiceRoot.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute)) {
+                return join;
+            }
+        }
+        return invoiceRoot.get(attribute);
     }
 
     private Predicate _getPredicate(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO, Root<Invoice> invoiceRoot) {
@@ -36,14 +115,14 @@ public class InvoiceCriteriaRepository {
 
         if (Objects.nonNull(invoiceSearchCriteriaDTO.getClientId())) {
             predicateList.add(criteriaBuilder.equal(
-                    invoiceRoot.get("client").get("clientId"),
+                    _getPartyPath(invoiceRoot, "client").get("clientId"),
                     invoiceSearchCriteriaDTO.getClientId()
             ));
         }
 
         if (Objects.nonNull(invoiceSearchCriteriaDTO.getSupplierId())) {
             predicateList.add(criteriaBuilder.equal(
-                    invoiceRoot.get("supplier").get("supplierId"),
+                    _getPartyPath(invoiceRoot, "supplier").get("supplierId"),
                     invoiceSearchCriteriaDTO.getSupplierId()
             ));
         }
@@ -75,31 +154,66 @@ public class InvoiceCriteriaRepository {
             ));
         }
 
-        if (Objects.nonNull(invoiceSearchCriteriaDTO.getStatus())) {
-            for (InvoiceStatus status : invoiceSearchCriteriaDTO.getStatus()) {
-                predicateList.add(criteriaBuilder.equal(invoiceRoot.get("status"), status));
-            }
+        // a list of statuses or currencies matches any of them, in one IN predicate on the ordinal column
+        if (Objects.nonNull(invoiceSearchCriteriaDTO.getStatus()) && !invoiceSearchCriteriaDTO.getStatus().isEmpty()) {
+            predicateList.add(invoiceRoot.get("status").in(
+                    EnumSet.copyOf(invoiceSearchCriteriaDTO.getStatus())
+            ));
         }
 
-        if (Objects.nonNull(invoiceSearchCriteriaDTO.getCurrencyType())) {
-            for (CurrencyType currency : invoiceSearchCriteriaDTO.getCurrencyType()) {
-                predicateList.add(criteriaBuilder.equal(invoiceRoot.get("currencyType"), currency));
-            }
+        if (Objects.nonNull(invoiceSearchCriteriaDTO.getCurrencyType())
+                && !invoiceSearchCriteriaDTO.getCurrencyType().isEmpty()) {
+            predicateList.add(invoiceRoot.get("currencyType").in(
+                    EnumSet.copyOf(invoiceSearchCriteriaDTO.getCurrencyType())
+            ));
         }
 
         return criteriaBuilder.and(predicateList.toArray(new Predicate[0]));
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate _getSeekPredicate(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO, Root<Invoice> invoiceRoot) {
+        InvoiceCursor cursor = InvoiceCursor.decode(invoiceSearchCriteriaDTO.getCursor());
+        cursor.checkOrder(invoiceSearchCriteriaDTO.getSortBy(), invoiceSearchCriteriaDTO.getSortDirection());
+
+        boolean ascending = cursor.getSortDirection().isAscending();
+        Path<Integer> idPath = invoiceRoot.get(INVOICE_ID);
+        Predicate afterId = ascending
+                ? criteriaBuilder.greaterThan(idPath, cursor.getInvoiceId())
+                : criteriaBuilder.lessThan(idPath, cursor.getInvoiceId());
+        if (INVOICE_ID.equals(cursor.getSortBy())) {
+            return afterId;
+        }
+
+        // (sortBy, invoiceId) > (value, id) for ascending order, < for descending order
+        Path sortPath = invoiceRoot.get(cursor.getSortBy());
+        Comparable value = cursor.getSortValue(sortPath.getJavaType());
+        return criteriaBuilder.or(
+                ascending ? criteriaBuilder.greaterThan(sortPath, value) : criteriaBuilder.lessThan(sortPath, value),
+                criteriaBuilder.and(criteriaBuilder.equal(sortPath, value), afterId)
+        );
+    }
+
     private void _setOrder(
             InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO,
-            CriteriaQuery<Invoice> criteriaQuery,
+            CriteriaQuery<?> criteriaQuery,
             Root<Invoice> invoiceRoot
     ) {
+        // invoiceId breaks ties so the order is stable between pages
+        List<Order> orders = new ArrayList<>();
+        String sortBy = invoiceSearchCriteriaDTO.getSortBy();
         if (invoiceSearchCriteriaDTO.getSortDirection().isAscending()) {
-            criteriaQuery.orderBy(criteriaBuilder.asc(invoiceRoot.get(invoiceSearchCriteriaDTO.getSortBy())));
+            orders.add(criteriaBuilder.asc(invoiceRoot.get(sortBy)));
+            if (!INVOICE_ID.equals(sortBy)) {
+                orders.add(criteriaBuilder.asc(invoiceRoot.get(INVOICE_ID)));
+            }
         } else {
-            criteriaQuery.orderBy(criteriaBuilder.desc(invoiceRoot.get(invoiceSearchCriteriaDTO.getSortBy())));
+            orders.add(criteriaBuilder.desc(invoiceRoot.get(sortBy)));
+            if (!INVOICE_ID.equals(sortBy)) {
+                orders.add(criteriaBuilder.desc(invoiceRoot.get(INVOICE_ID)));
+            }
         }
+        criteriaQuery.orderBy(orders);
     }
 
     private Pageable _getPageable(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO) {
@@ -107,27 +221,297 @@ public class InvoiceCriteriaRepository {
         return PageRequest.of(invoiceSearchCriteriaDTO.getPageIndex(), invoiceSearchCriteriaDTO.getPageSize(), sort);
     }
 
-    private Long _getInvoiceCount(Predicate predicate) {
+    private Long _getInvoiceCount(EntityManager countEntityManager, InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO) {
         CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
         Root<Invoice> countRoot = countQuery.from(Invoice.class);
-        countQuery.select(criteriaBuilder.count(countRoot)).where(predicate);
-        return entityManager.createQuery(countQuery).getSingleResult();
+        countQuery.select(criteriaBuilder.count(countRoot)).where(_getPredicate(invoiceSearchCriteriaDTO, countRoot));
+        return countEntityManager.createQuery(countQuery).getSingleResult();
     }
 
-    public Page<Invoice> findAllWithFilters(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO) {
-        CriteriaQuery<Invoice> criteriaQuery = criteriaBuilder.createQuery(Invoice.class);
-        Root<Invoice> invoiceRoot = criteriaQuery.from(Invoice.class);
+    /*
+     * The count on the count executor, on its own entity manager (and connection), while the page query runs.
+     * The request thread keeps its connection (open in view) while it waits for the count, so only
+     * invoice.search.parallel-count-permits counts, fewer than the connection pool size, wait for a second connection.
+     * Without a free permit or worker the count is null and the search counts on its own connection.
+     * A count cancelled before it starts is not run, one cancelled while it runs has its statement cancelled.
+     * onCount gets the count before the future completes, so it is done when the search has joined the count.
+     * */
+    private CompletableFuture<Long> _startParallelInvoiceCount(
+            InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO,
+            LongConsumer onCount
+    ) {
+        if (!countPermits.tryAcquire()) {
+            return null;
+        }
+        EntityManager countEntityManager = entityManagerFactory.createEntityManager();
+        CompletableFuture<Long> invoiceCount = new CompletableFuture<>();
+        try {
+            invoiceCountExecutor.execute(() -> {
+                try {
+                    if (!invoiceCount.isDone()) {
+                        long count = _getInvoiceCount(countEntityManager, invoiceSearchCriteriaDTO);
+                        onCount.accept(count);
+                        invoiceCount.complete(count);
+                    }
+                } catch (RuntimeException e) {
+                    invoiceCount.completeExceptionally(e);
+                } finally {
+                    synchronized (countEntityManager) {
+                        countEntityManager.close();
+                    }
+                    countPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            countEntityManager.close();
+            countPermits.release();
+            return null;
+        }
+        invoiceCount.whenComplete((count, e) -> {
+            if (invoiceCount.isCancelled()) {
+                synchronized (countEntityManager) {
+                    if (countEntityManager.isOpen()) {
+                        countEntityManager.unwrap(Session.class).cancelQuery();
+                    }
+                }
+            }
+        });
+        return invoiceCount;
+    }
 
+    /*
+     * Start the count of the search, it is joined after the page query.
+     * In parallel mode it runs on the count executor while the page query runs (see _startParallelInvoiceCount),
+     * otherwise it runs here.
+     * A cached count is only read in CACHED mode, but every new count is cached, so an EXACT first page gives its
+     * count to the next pages, unless the cache was cleared while it ran: it may have counted the rows from before
+     * the write.
+     * */
+    private CompletableFuture<Long> _startInvoiceCount(
+            InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO,
+            InvoiceCountMode countMode
+    ) {
+        boolean cached = countMode == InvoiceCountMode.CACHED;
+        String key = InvoiceSearchKey.filterKey(invoiceSearchCriteriaDTO);
+        long generation;
+        synchronized (countGenerationLock) {
+            generation = countGeneration;
+        }
+        if (cached) {
+            Long invoiceCount = invoiceCountCache.get(key);
+            if (Objects.nonNull(invoiceCount)) {
+                return CompletableFuture.completedFuture(invoiceCount);
+            }
+        }
+
+        LongConsumer onCount = count -> {
+            synchronized (countGenerationLock) {
+                if (generation == countGeneration) {
+                    invoiceCountCache.put(key, count);
+                }
+            }
+        };
+        // the count itself is returned (not a stage after it), so cancelling it reaches the running count
+        CompletableFuture<Long> invoiceCount = parallelCount
+                ? _startParallelInvoiceCount(invoiceSearchCriteriaDTO, onCount)
+                : null;
+        if (Objects.isNull(invoiceCount)) {
+            long count = _getInvoiceCount(entityManager, invoiceSearchCriteriaDTO);
+            onCount.accept(count);
+            invoiceCount = CompletableFuture.completedFuture(count);
+        }
+        return invoiceCount;
+    }
+
+    private long _joinInvoiceCount(CompletableFuture<Long> invoiceCount) {
+        try {
+            return invoiceCount.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * The cursor after the last row of a page that has a next page.
+     * It is only made for keyset paging: on a cursor page, or on the first page where keyset paging starts.
+     * Offset pages after the first one do not get a cursor.
+     * */
+    private <T> String _getNextCursor(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO, List<T> rows) {
+        if (Objects.isNull(invoiceSearchCriteriaDTO.getCursor()) && invoiceSearchCriteriaDTO.getPageIndex() > 0) {
+            return null;
+        }
+
+        // sortBy is one of SORTABLE_ATTRIBUTES, the entity and every view have a property of that name
+        BeanWrapper last = PropertyAccessorFactory.forBeanPropertyAccess(rows.get(rows.size() - 1));
+        return new InvoiceCursor(
+                invoiceSearchCriteriaDTO.getSortBy(),
+                invoiceSearchCriteriaDTO.getSortDirection(),
+                (Integer) last.getPropertyValue(INVOICE_ID),
+                last.getPropertyValue(invoiceSearchCriteriaDTO.getSortBy())
+        ).encode();
+    }
+
+    // columns of the view DTO projection, in the order of the flat constructor of the view
+    private List<Selection<?>> _getViewSelections(Class<?> viewType, Root<Invoice> invoiceRoot) {
+        boolean withClient = BankViewInvoiceDTO.class.equals(viewType) || SupplierVIewInvoiceDTO.class.equals(viewType);
+        boolean withSupplier = BankViewInvoiceDTO.class.equals(viewType) || ClientViewInvoiceDTO.class.equals(viewType);
+        if (!withClient && !withSupplier) {
+            throw new IllegalArgumentException(String.format("%s is not an invoice view.", viewType.getSimpleName()));
+        }
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(invoiceRoot.get(INVOICE_ID));
+        if (withClient) {
+            Join<Invoice, Client> client = invoiceRoot.join("client");
+            selections.add(client.get("clientId"));
+            selections.add(client.get("name"));
+        }
+        if (withSupplier) {
+            Join<Invoice, Supplier> supplier = invoiceRoot.join("supplier");
+            selections.add(supplier.get("supplierId"));
+            selections.add(supplier.get("name"));
+        }
+        selections.add(invoiceRoot.get("invoiceNumber"));
+        selections.add(invoiceRoot.get("invoiceDate"));
+        selections.add(invoiceRoot.get("amount"));
+        selections.add(invoiceRoot.get("status"));
+        selections.add(invoiceRoot.get("currencyType"));
+        return selections;
+    }
+
+    private <T> void _selectView(Class<T> viewType, CriteriaQuery<T> criteriaQuery, Root<Invoice> invoiceRoot) {
+        criteriaQuery.select(criteriaBuilder.construct(
+                viewType,
+                _getViewSelections(viewType, invoiceRoot).toArray(new Selection<?>[0])
+        ));
+    }
+
+    /*
+     * Without a cursor the page is read with the offset of pageIndex (old clients).
+     * With a cursor the page is read with a seek predicate after the last row of the previous page,
+     * so every page costs the same as the first one.
+     * The result is a page with the total count, or a slice when the count mode is NONE.
+     * The count is started before the page query, see _startInvoiceCount. A cursor page does not count again in
+     * EXACT mode, it reads the count of the earlier pages of the search from the count cache (CACHED).
+     * */
+    private <T> Slice<T> _findWithFilters(
+            InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO,
+            CriteriaQuery<T> criteriaQuery,
+            Root<Invoice> invoiceRoot,
+            EntityGraph<?> fetchGraph
+    ) {
+        _checkSortBy(invoiceSearchCriteriaDTO);
         Predicate predicate = _getPredicate(invoiceSearchCriteriaDTO, invoiceRoot);
+        if (Objects.nonNull(invoiceSearchCriteriaDTO.getCursor())) {
+            predicate = criteriaBuilder.and(predicate, _getSeekPredicate(invoiceSearchCriteriaDTO, invoiceRoot));
+        }
         criteriaQuery.where(predicate);
         _setOrder(invoiceSearchCriteriaDTO, criteriaQuery, invoiceRoot);
 
-        TypedQuery<Invoice> typedQuery = entityManager.createQuery(criteriaQuery);
-        typedQuery.setFirstResult(invoiceSearchCriteriaDTO.getPageIndex() * invoiceSearchCriteriaDTO.getPageSize());
-        typedQuery.setMaxResults(invoiceSearchCriteriaDTO.getPageSize());
+        InvoiceCountMode countMode = invoiceSearchCriteriaDTO.getCountMode();
+        if (countMode == InvoiceCountMode.EXACT && Objects.nonNull(invoiceSearchCriteriaDTO.getCursor())) {
+            countMode = InvoiceCountMode.CACHED;
+        }
+        CompletableFuture<Long> invoiceCount = countMode == InvoiceCountMode.NONE
+                ? null
+                : _startInvoiceCount(invoiceSearchCriteriaDTO, countMode);
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+        if (Objects.nonNull(fetchGraph)) {
+            typedQuery.setHint(FETCH_GRAPH_HINT, fetchGraph);
+        }
+        if (Objects.isNull(invoiceSearchCriteriaDTO.getCursor())) {
+            typedQuery.setFirstResult(invoiceSearchCriteriaDTO.getPageIndex() * invoiceSearchCriteriaDTO.getPageSize());
+        }
+        typedQuery.setMaxResults(invoiceSearchCriteriaDTO.getPageSize() + 1);
+
+        List<T> rows;
+        try {
+            rows = new ArrayList<>(typedQuery.getResultList());
+        } catch (RuntimeException e) {
+            if (Objects.nonNull(invoiceCount)) {
+                invoiceCount.cancel(false);
+            }
+            throw e;
+        }
+        // rows holds one row more than the page size when there is a next page, that extra row is removed here
+        boolean hasNext = rows.size() > invoiceSearchCriteriaDTO.getPageSize();
+        String nextCursor = null;
+        if (hasNext) {
+            rows.remove(rows.size() - 1);
+            nextCursor = _getNextCursor(invoiceSearchCriteriaDTO, rows);
+        }
 
         Pageable pageable = _getPageable(invoiceSearchCriteriaDTO);
-        long invoiceCount = _getInvoiceCount(predicate);
-        return new PageImpl<>(typedQuery.getResultList(), pageable, invoiceCount);
+        if (Objects.isNull(invoiceCount)) {
+            return new CursorSlice<>(rows, pageable, hasNext, nextCursor);
+        }
+        return new CursorPage<>(rows, pageable, _joinInvoiceCount(invoiceCount), nextCursor);
+    }
+
+    /*
+     * client and supplier are eager, without a fetch plan every distinct client and supplier of the page
+     * is read with its own select after the page query, so the page is read with the Invoice.withParties graph.
+     * */
+    public Slice<Invoice> findAllWithFilters(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO) {
+        CriteriaQuery<Invoice> criteriaQuery = criteriaBuilder.createQuery(Invoice.class);
+        Root<Invoice> invoiceRoot = criteriaQuery.from(Invoice.class);
+        return _findWithFilters(
+                invoiceSearchCriteriaDTO,
+                criteriaQuery,
+                invoiceRoot,
+                entityManager.getEntityGraph(Invoice.WITH_PARTIES_GRAPH)
+        );
+    }
+
+    /*
+     * Same search as findAllWithFilters, but only the columns of the view are selected and they are
+     * constructed straight into the view DTO (BankViewInvoiceDTO, ClientViewInvoiceDTO or SupplierVIewInvoiceDTO).
+     * No entity is loaded, so nothing is tracked by the persistence context.
+     * */
+    public <T> Slice<T> findAllWithFilters(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO, Class<T> viewType) {
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(viewType);
+        Root<Invoice> invoiceRoot = criteriaQuery.from(Invoice.class);
+        _selectView(viewType, criteriaQuery, invoiceRoot);
+        return _findWithFilters(invoiceSearchCriteriaDTO, criteriaQuery, invoiceRoot, null);
+    }
+
+    /*
+     * Every row of the search in the search order, paging and cursor are not used.
+     * The rows are read with a forward only scroll, invoice.export.fetch-size rows per round trip,
+     * and they are view DTOs, so the persistence context stays empty however many rows are read.
+     * The stream holds the database cursor: read it inside a transaction and close it.
+     * */
+    public <T> Stream<T> streamAllWithFilters(InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO, Class<T> viewType) {
+        return streamAllWithFilters(entityManager, invoiceSearchCriteriaDTO, viewType);
+    }
+
+    // same as above, on an entity manager (and transaction) owned by the caller
+    public <T> Stream<T> streamAllWithFilters(
+            EntityManager streamEntityManager,
+            InvoiceSearchCriteriaDTO invoiceSearchCriteriaDTO,
+            Class<T> viewType
+    ) {
+        _checkSortBy(invoiceSearchCriteriaDTO);
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(viewType);
+        Root<Invoice> invoiceRoot = criteriaQuery.from(Invoice.class);
+        _selectView(viewType, criteriaQuery, invoiceRoot);
+        criteriaQuery.where(_getPredicate(invoiceSearchCriteriaDTO, invoiceRoot));
+        _setOrder(invoiceSearchCriteriaDTO, criteriaQuery, invoiceRoot);
+
+        return streamEntityManager.createQuery(criteriaQuery)
+                                  .setHint(FETCH_SIZE_HINT, exportFetchSize)
+                                  .getResultStream();
+    }
+
+    // called after every invoice write is committed, the cached counts may be wrong after it
+    public void clearInvoiceCountCache() {
+        synchronized (countGenerationLock) {
+            countGeneration++;
+            invoiceCountCache.invalidateAll();
+        }
     }
 }
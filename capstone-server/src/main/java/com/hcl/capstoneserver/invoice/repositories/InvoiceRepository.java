@@ -1,11 +1,62 @@
 package com.hcl.capstoneserver.invoice.repositories;
 
+import com.hcl.capstoneserver.invoice.InvoiceStatus;
+import com.hcl.capstoneserver.invoice.dto.BankViewInvoiceDTO;
 import com.hcl.capstoneserver.invoice.entities.Invoice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Integer>, JpaSpecificationExecutor<Invoice> {
+
+    // [supplierId, invoiceNumber] of the existing invoices among the given suppliers and invoice numbers
+    @Query("select i.supplier.supplierId, i.invoiceNumber from Invoice i " +
+            "where i.supplier.supplierId in :supplierIds and i.invoiceNumber in :invoiceNumbers")
+    List<Object[]> findSupplierInvoiceNumbers(
+            @Param("supplierIds") Collection<String> supplierIds,
+            @Param("invoiceNumbers") Collection<String> invoiceNumbers
+    );
+
+    @Query("select new com.hcl.capstoneserver.invoice.dto.BankViewInvoiceDTO(" +
+            "i.invoiceId, c.clientId, c.name, s.supplierId, s.name, " +
+            "i.invoiceNumber, i.invoiceDate, i.amount, i.status, i.currencyType) " +
+            "from Invoice i join i.client c join i.supplier s where i.invoiceId = :invoiceId")
+    Optional<BankViewInvoiceDTO> findBankViewById(@Param("invoiceId") Integer invoiceId);
+
+    // [invoiceId, invoiceDate, status, clientId, supplierId] of the given invoices, locked until the end of the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i.invoiceId, i.invoiceDate, i.status, i.client.clientId, i.supplier.supplierId from Invoice i " +
+            "where i.invoiceId in :invoiceIds")
+    List<Object[]> findStatusesForUpdate(@Param("invoiceIds") Collection<Integer> invoiceIds);
+
+    /*
+     * Compare and set of the status: the status and date rules of a status update are in the where,
+     * a row that does not follow them is not updated, and the returned count tells how many rows were.
+     * versioned moves the version of the updated rows, so a full update of a copy read before fails.
+     * */
+    @Modifying(clearAutomatically = true)
+    @Query("update versioned Invoice i set i.status = :status " +
+            "where i.invoiceId in :invoiceIds and i.status in :fromStatuses and i.invoiceDate >= :today")
+    int updateStatuses(
+            @Param("invoiceIds") Collection<Integer> invoiceIds,
+            @Param("status") InvoiceStatus status,
+            @Param("fromStatuses") Collection<InvoiceStatus> fromStatuses,
+            @Param("today") LocalDate today
+    );
+
+    // the status rule of a delete is in the where, so an invoice moved to the status after it was read is not deleted
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Invoice i where i.invoiceId = :invoiceId and i.status <> :status")
+    int deleteUnlessStatus(@Param("invoiceId") Integer invoiceId, @Param("status") InvoiceStatus status);
 }
@@ -0,0 +1,32 @@
+package com.hcl.capstoneserver.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// user details that also carry the client id or the supplier id of the user, put in the jwt claims on sign in
+public class AppUserDetails extends User {
+    private final String clientId;
+    private final String supplierId;
+
+    public AppUserDetails(
+            String username,
+            String password,
+            Collection<? extends GrantedAuthority> authorities,
+            String clientId,
+            String supplierId
+    ) {
+        super(username, password, authorities);
+        this.clientId = clientId;
+        this.supplierId = supplierId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+}
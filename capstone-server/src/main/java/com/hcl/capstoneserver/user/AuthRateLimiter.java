@@ -0,0 +1,59 @@
+package com.hcl.capstoneserver.user;
+
+import com.hcl.capstoneserver.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Limits of the authentication endpoints: every request of a client ip takes a token of the ip,
+ * and every sign in of a user id takes a token of the user id that is given back when the sign in succeeds,
+ * so password guessing on one user is slowed down without limiting the users who sign in correctly.
+ * */
+@Component
+public class AuthRateLimiter {
+    private final RateLimiter ipLimiter;
+    private final RateLimiter userLimiter;
+
+    public AuthRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${security.rate-limit.ip.burst:30}") int ipBurst,
+            @Value("${security.rate-limit.ip.per-minute:600}") int ipPerMinute,
+            @Value("${security.rate-limit.user.burst:5}") int userBurst,
+            @Value("${security.rate-limit.user.per-minute:5}") int userPerMinute,
+            @Value("${security.rate-limit.max-keys:100000}") int maxKeys
+    ) {
+        this.ipLimiter = new RateLimiter(ipBurst, _getIntervalNanos(ipPerMinute), maxKeys)
+                .bindTo(meterRegistry, "auth.ip");
+        this.userLimiter = new RateLimiter(userBurst, _getIntervalNanos(userPerMinute), maxKeys)
+                .bindTo(meterRegistry, "auth.user");
+    }
+
+    private static long _getIntervalNanos(int perMinute) {
+        return TimeUnit.MINUTES.toNanos(1) / perMinute;
+    }
+
+    public boolean tryAcquireIp(String ip) {
+        return ipLimiter.tryAcquire(ip);
+    }
+
+    // seconds until the ip gets a token back, sent as Retry-After
+    public long getIpRetryAfterSeconds() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(ipLimiter.getIntervalNanos() + 999_999_999L));
+    }
+
+    // takes a token of the user id before the password is checked, so parallel guesses can not all pass the check
+    public boolean tryAcquireSignIn(String userId) {
+        return Objects.isNull(userId) || userLimiter.tryAcquire(userId);
+    }
+
+    // gives the token back, only the failed sign ins count
+    public void onSuccessfulSignIn(String userId) {
+        if (Objects.nonNull(userId)) {
+            userLimiter.release(userId);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.hcl.capstoneserver.user;
+
+import java.security.Principal;
+
+/*
+ * Principal of a request authenticated by a jwt, with the client id or the supplier id read from the token claims.
+ * The ids are null on tokens issued without them, the user is then looked up by its user id.
+ * */
+public class AuthenticatedUser implements Principal {
+    private final String userId;
+    private final String clientId;
+    private final String supplierId;
+
+    public AuthenticatedUser(String userId, String clientId, String supplierId) {
+        this.userId = userId;
+        this.clientId = clientId;
+        this.supplierId = supplierId;
+    }
+
+    @Override
+    public String getName() {
+        return userId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    @Override
+    public String toString() {
+        return userId;
+    }
+}
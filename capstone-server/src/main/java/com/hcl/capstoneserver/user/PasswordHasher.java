@@ -0,0 +1,70 @@
+package com.hcl.capstoneserver.user;
+
+import com.hcl.capstoneserver.user.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/*
+ * Runs the bcrypt work of sign in and sign up on the password hash workers instead of the request threads,
+ * so a burst of sign ins can only use those workers. When every worker is busy and the queue is full
+ * the request is refused at once with a 429 instead of waiting.
+ * */
+@Component
+public class PasswordHasher {
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ExecutorService passwordHashExecutor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public PasswordHasher(
+            BCryptPasswordEncoder passwordEncoder,
+            @Qualifier("passwordHashExecutor") ExecutorService passwordHashExecutor,
+            MeterRegistry meterRegistry
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashExecutor = passwordHashExecutor;
+        this.encodeTimer = Timer.builder("password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hash").tag("operation", "matches").register(meterRegistry);
+    }
+
+    private <T> T _run(Timer timer, Supplier<T> work) {
+        Future<T> future;
+        try {
+            future = passwordHashExecutor.submit(() -> timer.record(work));
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public String encode(String rawPassword) {
+        return _run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return _run(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // true when the hash was made with a lower work factor than the configured one
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+}
@@ -1,10 +1,6 @@
 package com.hcl.capstoneserver.user;
 
 import com.hcl.capstoneserver.user.dto.*;
-import com.hcl.capstoneserver.user.entities.AppUser;
-import com.hcl.capstoneserver.user.entities.Client;
-import com.hcl.capstoneserver.user.entities.Supplier;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,9 +13,9 @@ import java.security.Principal;
 @RestController()
 public class UserController {
     private final UserService userService;
-    private final ModelMapper mapper;
+    private final UserMapper mapper;
 
-    public UserController(UserService userService, ModelMapper mapper) {
+    public UserController(UserService userService, UserMapper mapper) {
         this.userService = userService;
         this.mapper = mapper;
     }
@@ -29,7 +25,7 @@ public class UserController {
     	System.out.println("Request received");
         return new ResponseEntity<>(
                 userService.signIn(
-                        mapper.map(dto, AppUser.class)
+                        mapper.toAppUser(dto)
                 ),
                 HttpStatus.OK
         );
@@ -50,7 +46,7 @@ public class UserController {
     @PostMapping("/api/sign-up/supplier")
     public ResponseEntity<SupplierDTO> signUpSupplier(@Valid @RequestBody PersonWithPasswordDTO dto) {
         return new ResponseEntity<>(
-                userService.signUpSupplier(mapper.map(dto, Supplier.class)),
+                userService.signUpSupplier(mapper.toSupplier(dto)),
                 HttpStatus.CREATED
         );
     }
@@ -58,7 +54,7 @@ public class UserController {
     @PostMapping("/api/sign-up/client")
     public ResponseEntity<ClientDTO> signUpClient(@Valid @RequestBody PersonWithPasswordDTO dto) {
         return new ResponseEntity<>(
-                userService.signUpClient(mapper.map(dto, Client.class)),
+                userService.signUpClient(mapper.toClient(dto)),
                 HttpStatus.CREATED
         );
     }
@@ -0,0 +1,78 @@
+package com.hcl.capstoneserver.user;
+
+import com.hcl.capstoneserver.user.entities.AppUser;
+import com.hcl.capstoneserver.user.entities.Client;
+import com.hcl.capstoneserver.user.entities.Supplier;
+import com.hcl.capstoneserver.util.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/*
+ * Credentials of the recently signed in users, so sign in and refresh token do not read the user tables each time.
+ * Only the user id, the password hash, the user type and the client/supplier id are kept, every caller gets its own UserDetails
+ * (spring security erases the credentials of the UserDetails it authenticated).
+ * Unknown users are not kept, a user write has to invalidate its user id.
+ * */
+@Component
+public class UserDetailsCache {
+    private final BoundedCache<String, Credentials> cache;
+
+    public UserDetailsCache(
+            MeterRegistry meterRegistry,
+            @Value("${user.details-cache.size:10000}") int size,
+            @Value("${user.details-cache.ttl:60000}") long ttl
+    ) {
+        this.cache = new BoundedCache<String, Credentials>(size, ttl).bindTo(meterRegistry, "user.details");
+    }
+
+    public Optional<AppUserDetails> get(String userId, Function<String, Optional<AppUser>> loader) {
+        Credentials credentials = cache.get(userId);
+        if (Objects.isNull(credentials)) {
+            Optional<AppUser> user = loader.apply(userId);
+            if (!user.isPresent()) {
+                return Optional.empty();
+            }
+            credentials = new Credentials(user.get());
+            cache.put(userId, credentials);
+        }
+        return Optional.of(credentials.toUserDetails());
+    }
+
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+    }
+
+    private static final class Credentials {
+        private final String userId;
+        private final String password;
+        private final String userType;
+        private final String clientId;
+        private final String supplierId;
+
+        private Credentials(AppUser user) {
+            this.userId = user.getUserId();
+            this.password = user.getPassword();
+            this.userType = user.getUserType().toString();
+            // the joined lookup returns the Client or the Supplier itself
+            this.clientId = user instanceof Client ? ((Client) user).getClientId() : null;
+            this.supplierId = user instanceof Supplier ? ((Supplier) user).getSupplierId() : null;
+        }
+
+        private AppUserDetails toUserDetails() {
+            return new AppUserDetails(
+                    userId,
+                    password,
+                    Collections.singleton(new SimpleGrantedAuthority(userType)),
+                    clientId,
+                    supplierId
+            );
+        }
+    }
+}
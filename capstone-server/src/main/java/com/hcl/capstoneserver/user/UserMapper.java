@@ -0,0 +1,72 @@
+package com.hcl.capstoneserver.user;
+
+import com.hcl.capstoneserver.user.dto.AppUserWithPasswordDTO;
+import com.hcl.capstoneserver.user.dto.ClientDTO;
+import com.hcl.capstoneserver.user.dto.PersonWithPasswordDTO;
+import com.hcl.capstoneserver.user.dto.SupplierDTO;
+import com.hcl.capstoneserver.user.entities.AppUser;
+import com.hcl.capstoneserver.user.entities.Client;
+import com.hcl.capstoneserver.user.entities.Supplier;
+import org.springframework.stereotype.Component;
+
+// maps the users to and from their DTOs with plain getters and setters
+@Component
+public class UserMapper {
+
+    public AppUser toAppUser(AppUserWithPasswordDTO dto) {
+        AppUser user = new AppUser();
+        user.setUserId(dto.getUserId());
+        user.setPassword(dto.getPassword());
+        return user;
+    }
+
+    public Supplier toSupplier(PersonWithPasswordDTO dto) {
+        return new Supplier(
+                dto.getUserId(),
+                dto.getPassword(),
+                dto.getName(),
+                dto.getAddress(),
+                dto.getEmail(),
+                dto.getPhone(),
+                dto.getInterestRate()
+        );
+    }
+
+    public Client toClient(PersonWithPasswordDTO dto) {
+        return new Client(
+                dto.getUserId(),
+                dto.getPassword(),
+                dto.getName(),
+                dto.getAddress(),
+                dto.getEmail(),
+                dto.getPhone(),
+                dto.getInterestRate(),
+                null
+        );
+    }
+
+    public SupplierDTO toSupplierDTO(Supplier supplier) {
+        return new SupplierDTO(
+                supplier.getUserId(),
+                supplier.getName(),
+                supplier.getAddress(),
+                supplier.getEmail(),
+                supplier.getPhone(),
+                supplier.getInterestRate(),
+                supplier.getSupplierId()
+        );
+    }
+
+    public ClientDTO toClientDTO(Client client) {
+        return new ClientDTO(
+                client.getUserId(),
+                client.getName(),
+                client.getAddress(),
+                client.getEmail(),
+                client.getPhone(),
+                client.getInterestRate(),
+                client.getClientId(),
+                client.getAccountNumber()
+        );
+    }
+}
@@ -8,6 +8,8 @@ import com.hcl.capstoneserver.user.entities.AppUser;
 import com.hcl.capstoneserver.user.entities.Client;
 import com.hcl.capstoneserver.user.entities.Supplier;
 import com.hcl.capstoneserver.user.exceptions.EmailAlreadyExistsException;
+import com.hcl.capstoneserver.user.exceptions.PasswordHashingBusyException;
+import com.hcl.capstoneserver.user.exceptions.TooManySignInAttemptsException;
 import com.hcl.capstoneserver.user.exceptions.UserAlreadyExistsException;
 import com.hcl.capstoneserver.user.exceptions.UserDoesNotExistException;
 import com.hcl.capstoneserver.user.repositories.AppUserRepository;
@@ -15,19 +17,18 @@ import com.hcl.capstoneserver.user.repositories.ClientRepository;
 import com.hcl.capstoneserver.user.repositories.SupplierRepository;
 import com.hcl.capstoneserver.util.JWTUtil;
 import com.hcl.capstoneserver.util.SequenceGenerator;
-import org.modelmapper.ModelMapper;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -36,34 +37,47 @@ public class UserService implements UserDetailsService {
     private final SupplierRepository supplierRepository;
     private final ClientRepository clientRepository;
     private final JWTUtil jwtUtil;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
-    private final ModelMapper mapper;
+    private final PasswordHasher passwordHasher;
+    private final UserMapper mapper;
     private final SequenceGenerator sequenceGenerator;
+    private final UserDetailsCache userDetailsCache;
+    private final AuthRateLimiter authRateLimiter;
 
     public UserService(
             AppUserRepository appUserRepository,
             SupplierRepository supplierRepository,
             ClientRepository clientRepository,
             JWTUtil jwtUtil,
-            BCryptPasswordEncoder bCryptPasswordEncoder,
-            ModelMapper mapper,
-            SequenceGenerator sequenceGenerator
+            PasswordHasher passwordHasher,
+            UserMapper mapper,
+            SequenceGenerator sequenceGenerator,
+            UserDetailsCache userDetailsCache,
+            AuthRateLimiter authRateLimiter
     ) {
         this.appUserRepository = appUserRepository;
         this.supplierRepository = supplierRepository;
         this.clientRepository = clientRepository;
         this.jwtUtil = jwtUtil;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHasher = passwordHasher;
         this.mapper = mapper;
         this.sequenceGenerator = sequenceGenerator;
+        this.userDetailsCache = userDetailsCache;
+        this.authRateLimiter = authRateLimiter;
     }
 
     public JwtWithTypeDTO signIn(AppUser user) {
         try {
 
+            if (!authRateLimiter.tryAcquireSignIn(user.getUserId()))
+                throw new TooManySignInAttemptsException();
+
             UserDetails userDetails = loadUserByUsername(user.getUserId());
-            if (!bCryptPasswordEncoder.matches(user.getPassword(), userDetails.getPassword()))
+            if (!passwordHasher.matches(user.getPassword(), userDetails.getPassword())) {
                 throw new BadCredentialsException("Invalid username or password");
+            }
+            if (passwordHasher.upgradeEncoding(userDetails.getPassword()))
+                _rehashPassword(user.getUserId(), user.getPassword());
+            authRateLimiter.onSuccessfulSignIn(user.getUserId());
 
             String jwt = jwtUtil.generateToken(userDetails);
 
@@ -77,6 +91,22 @@ public class UserService implements UserDetailsService {
         }
     }
 
+    // the password hash was made with a lower work factor, store a new one while the raw password is known
+    private void _rehashPassword(String userId, String rawPassword) {
+        String password;
+        try {
+            password = passwordHasher.encode(rawPassword);
+        } catch (PasswordHashingBusyException e) {
+            // the sign in still succeeds, the hash is upgraded on a later one
+            return;
+        }
+        appUserRepository.findById(userId).ifPresent(appUser -> {
+            appUser.setPassword(password);
+            appUserRepository.save(appUser);
+        });
+        userDetailsCache.invalidate(userId);
+    }
+
     public JwtWithTypeDTO refreshToken(String username) {
         UserDetails userDetails = loadUserByUsername(username);
         String jwt = jwtUtil.generateToken(userDetails);
@@ -91,21 +121,8 @@ public class UserService implements UserDetailsService {
     // used by spring security don't change
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<AppUser> user = appUserRepository.findById(username);
-
-        if (!user.isPresent()) {
-            throw new UsernameNotFoundException("User not found");
-        }
-
-        return new User(
-                user.get()
-                    .getUserId(),
-                user.get()
-                    .getPassword(),
-                Collections.singleton(
-                        new SimpleGrantedAuthority(user.get().getUserType().toString())
-                )
-        );
+        return userDetailsCache.get(username, appUserRepository::findById)
+                               .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
 
@@ -116,16 +133,17 @@ public class UserService implements UserDetailsService {
                 throw new UserAlreadyExistsException(supplier.getUserId());
             }
 
-            return mapper.map(supplierRepository.save(new Supplier(
+            userDetailsCache.invalidate(supplier.getUserId());
+            return mapper.toSupplierDTO(supplierRepository.save(new Supplier(
                     supplier.getUserId(),
-                    bCryptPasswordEncoder.encode(supplier.getPassword()),
+                    passwordHasher.encode(supplier.getPassword()),
                     supplier.getName(),
                     supplier.getAddress(),
                     supplier.getEmail(),
                     supplier.getPhone(),
                     supplier.getInterestRate(),
                     sequenceGenerator.getSupplierSequence()
-            )), SupplierDTO.class);
+            )));
         } catch (DataIntegrityViolationException e) {
             throw new EmailAlreadyExistsException(supplier.getEmail());
         }
@@ -138,9 +156,10 @@ public class UserService implements UserDetailsService {
                 throw new UserAlreadyExistsException(client.getUserId());
             }
 
-            return mapper.map(clientRepository.save(new Client(
+            userDetailsCache.invalidate(client.getUserId());
+            return mapper.toClientDTO(clientRepository.save(new Client(
                     client.getUserId(),
-                    bCryptPasswordEncoder.encode(client.getPassword()),
+                    passwordHasher.encode(client.getPassword()),
                     client.getName(),
                     client.getAddress(),
                     client.getEmail(),
@@ -148,7 +167,7 @@ public class UserService implements UserDetailsService {
                     client.getInterestRate(),
                     sequenceGenerator.getClientSequence(),
                     client.getAccountNumber()
-            )), ClientDTO.class);
+            )));
         } catch (DataIntegrityViolationException e) {
             throw new EmailAlreadyExistsException(client.getEmail());
         }
@@ -174,6 +193,21 @@ public class UserService implements UserDetailsService {
         return supplier.map(Supplier::getSupplierId).orElse(null);
     }
 
+    // client id from the token claims, looked up on tokens issued without it
+    public String getClientId(AuthenticatedUser user) {
+        return Objects.nonNull(user.getClientId()) ? user.getClientId() : getClientId(user.getName());
+    }
+
+    // supplier id from the token claims, looked up on tokens issued without it
+    public String getSupplierId(AuthenticatedUser user) {
+        return Objects.nonNull(user.getSupplierId()) ? user.getSupplierId() : getSupplierId(user.getName());
+    }
+
+    // reference to the client of a token that carries its client id, the client row is not read
+    public Client getClientReference(AuthenticatedUser user) {
+        return clientRepository.getOne(user.getName());
+    }
+
     public Client fetchClientDataByUserId(String userId) {
         Optional<Client> client = clientRepository.findById(userId);
         if (!client.isPresent()) {
@@ -209,5 +243,14 @@ public class UserService implements UserDetailsService {
         }
         return optionalSupplier.get();
     }
+
+    // suppliers of the given supplierIds by supplierId, unknown supplierIds are not in the map
+    public Map<String, Supplier> fetchSuppliersBySupplierIds(Collection<String> supplierIds) {
+        Map<String, Supplier> suppliers = new HashMap<>();
+        for (Supplier supplier : supplierRepository.findBySupplierIdIn(supplierIds)) {
+            suppliers.put(supplier.getSupplierId(), supplier);
+        }
+        return suppliers;
+    }
 }
 
@@ -1,6 +1,7 @@
 package com.hcl.capstoneserver.user.entities;
 
 import com.hcl.capstoneserver.generator.id.CustomIdGenerator;
+import com.hcl.capstoneserver.util.SequenceGenerator;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Parameter;
 
@@ -9,6 +10,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
+// declares the client id sequence, the ids are reserved from it in blocks by SequenceGenerator
 @Entity
 public class ClientIdSequence {
     @Id
@@ -16,10 +18,10 @@ public class ClientIdSequence {
     @GenericGenerator(name = "clientid_sequence",
             strategy = "com.hcl.capstoneserver.generator.id.CustomIdGenerator",
             parameters = {
-                    @Parameter(name = CustomIdGenerator.SEQUENCE_PARAM, value = "clientid_sequence"),
+                    @Parameter(name = CustomIdGenerator.SEQUENCE_PARAM, value = SequenceGenerator.CLIENT_SEQUENCE),
                     @Parameter(name = CustomIdGenerator.INITIAL_PARAM, value = "1"),
                     @Parameter(name = CustomIdGenerator.OPT_PARAM, value = "pooled-lo"),
-                    @Parameter(name = CustomIdGenerator.INCREMENT_PARAM, value = "1"),
+                    @Parameter(name = CustomIdGenerator.INCREMENT_PARAM, value = SequenceGenerator.ID_BLOCK_SIZE),
                     @Parameter(name = CustomIdGenerator.PREFIX_PARAM, value = "CL_"),
                     @Parameter(name = CustomIdGenerator.NUMBER_FORMAT_PARAM, value = "%05d")
             }
@@ -2,10 +2,12 @@ package com.hcl.capstoneserver.user.entities;
 
 import com.hcl.capstoneserver.user.UserType;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 
 @Entity
 public class Supplier extends Person {
+    @Column(unique = true)
     private String supplierId;
 
     public Supplier() {
@@ -0,0 +1,12 @@
+package com.hcl.capstoneserver.user.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class PasswordHashingBusyException extends HttpClientErrorException {
+    public PasswordHashingBusyException() {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many sign in requests, please try again later.");
+    }
+}
@@ -0,0 +1,12 @@
+package com.hcl.capstoneserver.user.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManySignInAttemptsException extends HttpClientErrorException {
+    public TooManySignInAttemptsException() {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many failed sign in attempts, please try again later.");
+    }
+}
@@ -4,6 +4,10 @@ import com.hcl.capstoneserver.user.entities.Supplier;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface SupplierRepository extends JpaRepository<Supplier, String> {
-}
\ No newline at end of file
+    List<Supplier> findBySupplierIdIn(Collection<String> supplierIds);
+}
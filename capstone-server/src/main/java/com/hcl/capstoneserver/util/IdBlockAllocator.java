@@ -0,0 +1,51 @@
+package com.hcl.capstoneserver.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+ * Hands out ids from blocks reserved on a database sequence that increments by the block size:
+ * a sequence value v reserves the ids [v, v + blockSize), so the blocks of several nodes never overlap.
+ * Ids of the current block are taken with one atomic increment, only the caller that finds the block used up
+ * reserves the next one while the others wait for it.
+ * */
+public class IdBlockAllocator {
+    private final LongSupplier reserveBlock;
+    private final long blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    public IdBlockAllocator(LongSupplier reserveBlock, long blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be greater than 0");
+        }
+        this.reserveBlock = reserveBlock;
+        this.blockSize = blockSize;
+    }
+
+    public long next() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            synchronized (this) {
+                // another caller may have reserved the next block already
+                if (block == current) {
+                    long start = reserveBlock.getAsLong();
+                    block = new Block(start, start + blockSize);
+                }
+            }
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -1,25 +1,50 @@
 package com.hcl.capstoneserver.util;
 
+import com.hcl.capstoneserver.user.AppUserDetails;
+import com.hcl.capstoneserver.user.AuthenticatedUser;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
-import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 
 @Component
 public class JWTUtil {
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    public static final String CLIENT_ID_CLAIM = "clientId";
+    public static final String SUPPLIER_ID_CLAIM = "supplierId";
+    // the secret is base64 encoded, its key bytes are decoded once and shared by the signer and the parser
+    private final byte[] signingKey;
+    private final JwtParser parser;
+    private final int JWT_VALIDITY;
+    // claims of the tokens that passed the signature check, keyed by the token hash and kept until the token expires
+    private final BoundedCache<String, Claims> verifiedTokens;
 
-    @Value("${jwt.validity}")
-    int JWT_VALIDITY;
+    public JWTUtil(
+            MeterRegistry meterRegistry,
+            @Value("${jwt.secret}") String secretKey,
+            @Value("${jwt.validity}") int jwtValidity,
+            @Value("${jwt.verified-cache.size:10000}") int verifiedCacheSize
+    ) {
+        this.signingKey = TextCodec.BASE64.decode(secretKey);
+        this.parser = Jwts.parser().setSigningKey(signingKey);
+        this.JWT_VALIDITY = jwtValidity;
+        this.verifiedTokens = new BoundedCache<String, Claims>(verifiedCacheSize, 0)
+                .bindTo(meterRegistry, "jwt.verified");
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -30,32 +55,81 @@ public class JWTUtil {
     }
 
     public String extractUserType(String token) {
-        return extractClaim(token, (claims -> claims.get("userType"))).toString();
+        return getUserType(parseVerifiedClaims(token));
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseVerifiedClaims(token);
         return claimsResolver.apply(claims);
     }
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+
+    // checks the signature and the expiry and parses the claims once, throws a JwtException on an invalid token
+    // a token seen before is taken from the cache without checking its signature again, until it expires
+    public Claims parseVerifiedClaims(String token) {
+        String tokenHash = _hash(token);
+        Claims claims = verifiedTokens.get(tokenHash);
+        if (Objects.nonNull(claims)) {
+            return claims;
+        }
+
+        claims = parser.parseClaimsJws(token).getBody();
+        if (Objects.nonNull(claims.getExpiration())) {
+            verifiedTokens.put(tokenHash, claims, claims.getExpiration().getTime());
+        }
+        return claims;
+    }
+
+    private static String _hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getUserType(Claims claims) {
+        return claims.get("userType").toString();
+    }
+
+    public AuthenticatedUser getAuthenticatedUser(Claims claims) {
+        return new AuthenticatedUser(
+                claims.getSubject(),
+                claims.get(CLIENT_ID_CLAIM, String.class),
+                claims.get(SUPPLIER_ID_CLAIM, String.class)
+        );
+    }
+
+    public boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenExpired(parseVerifiedClaims(token));
     }
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
 
         claims.put("userType", userDetails.getAuthorities().toArray()[0]);
+        // the invoice paths read the client/supplier id of the user from the token instead of looking it up
+        if (userDetails instanceof AppUserDetails) {
+            AppUserDetails appUserDetails = (AppUserDetails) userDetails;
+            if (Objects.nonNull(appUserDetails.getClientId())) {
+                claims.put(CLIENT_ID_CLAIM, appUserDetails.getClientId());
+            }
+            if (Objects.nonNull(appUserDetails.getSupplierId())) {
+                claims.put(SUPPLIER_ID_CLAIM, appUserDetails.getSupplierId());
+            }
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + JWT_VALIDITY))
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY).compact();
+                .signWith(SignatureAlgorithm.HS256, signingKey).compact();
     }
 
     public Boolean validateToken(String token) {
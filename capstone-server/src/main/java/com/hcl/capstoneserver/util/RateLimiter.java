@@ -0,0 +1,184 @@
+package com.hcl.capstoneserver.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Token bucket per key: a key can spend up to `burst` tokens at once, and gets one back every `intervalNanos`.
+ * A bucket is one atomic "time when the bucket is full again" (generic cell rate algorithm), taking a token
+ * is one compare and set, so no lock is held on the request path.
+ * A full bucket is the same as no bucket, so full buckets are dropped when the number of keys reaches maxKeys,
+ * by a sweep of the whole map at most once per `burst * intervalNanos` (the time a used bucket takes to be full again).
+ * Between sweeps, a new key evicts the bucket closest to full among a few buckets taken from a random part of the
+ * map: new keys are never let through untracked, and an emptied bucket is the last one to go, so rotating keys to
+ * fill the map mostly evicts the rotated keys, and a new key costs the same with any number of keys.
+ * */
+public class RateLimiter {
+    private static final int EVICTION_SAMPLES = 32;
+
+    private final int burst;
+    private final long intervalNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAt;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public RateLimiter(int burst, long intervalNanos, int maxKeys, LongSupplier nanoClock) {
+        if (burst < 1 || intervalNanos < 1) {
+            throw new IllegalArgumentException("burst and intervalNanos must be greater than 0");
+        }
+        this.burst = burst;
+        this.intervalNanos = intervalNanos;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+        this.nextSweepAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public RateLimiter(int burst, long intervalNanos, int maxKeys) {
+        this(burst, intervalNanos, maxKeys, System::nanoTime);
+    }
+
+    private AtomicLong _getBucket(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            _sweep(now);
+            if (buckets.size() >= maxKeys) {
+                _evict();
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    /*
+     * Removes the bucket that is full again first, among EVICTION_SAMPLES buckets of a random part of the map:
+     * the spliterator of the map is split in halves, keeping a random half, until a part has about EVICTION_SAMPLES
+     * buckets, so finding the part takes a few splits whatever the number of keys.
+     * */
+    private void _evict() {
+        Spliterator<Map.Entry<String, AtomicLong>> part = buckets.entrySet().spliterator();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (part.estimateSize() > EVICTION_SAMPLES) {
+            Spliterator<Map.Entry<String, AtomicLong>> prefix = part.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            if (random.nextBoolean()) {
+                part = prefix;
+            }
+        }
+
+        List<Map.Entry<String, AtomicLong>> samples = new ArrayList<>(EVICTION_SAMPLES);
+        while (samples.size() < EVICTION_SAMPLES && part.tryAdvance(samples::add)) {
+            // the samples are collected by tryAdvance
+        }
+        Map.Entry<String, AtomicLong> oldest = null;
+        for (Map.Entry<String, AtomicLong> entry : samples) {
+            if (oldest == null || entry.getValue().get() - oldest.getValue().get() < 0) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null && buckets.remove(oldest.getKey(), oldest.getValue())) {
+            evicted.increment();
+        }
+    }
+
+    // drops the full buckets, one sweep at a time and at most one per burst * intervalNanos
+    private void _sweep(long now) {
+        long sweepAt = nextSweepAt.get();
+        if (now - sweepAt >= 0 && nextSweepAt.compareAndSet(sweepAt, now + burst * intervalNanos)) {
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+
+    // takes a token of the key, false when the bucket is empty
+    public boolean tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = _getBucket(key, now);
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt - now, 0) + intervalNanos;
+            if (next > burst * intervalNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, now + next)) {
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    // gives back a token taken by tryAcquire, the bucket does not get more than full
+    public void release(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        bucket.updateAndGet(fullAt -> fullAt - intervalNanos - now > 0 ? fullAt - intervalNanos : now);
+    }
+
+    // true when the key has a token left, without taking it
+    public boolean hasToken(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        return Math.max(bucket.get() - now, 0) + intervalNanos <= burst * intervalNanos;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public RateLimiter bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("rate.limit.requests", this, RateLimiter::getAllowedCount)
+                       .tags("limit", name, "result", "allowed")
+                       .register(registry);
+        FunctionCounter.builder("rate.limit.requests", this, RateLimiter::getRejectedCount)
+                       .tags("limit", name, "result", "rejected")
+                       .register(registry);
+        FunctionCounter.builder("rate.limit.evicted", this, RateLimiter::getEvictedCount)
+                       .tag("limit", name)
+                       .register(registry);
+        Gauge.builder("rate.limit.keys", this, RateLimiter::size)
+             .tag("limit", name)
+             .register(registry);
+        return this;
+    }
+}
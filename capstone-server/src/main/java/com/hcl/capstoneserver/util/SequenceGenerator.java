@@ -1,36 +1,55 @@
 package com.hcl.capstoneserver.util;
 
-import com.hcl.capstoneserver.user.entities.ClientIdSequence;
-import com.hcl.capstoneserver.user.entities.SupplierIdSequence;
-import com.hcl.capstoneserver.user.repositories.ClientIdSequenceRepository;
-import com.hcl.capstoneserver.user.repositories.SupplierIdSequenceRepository;
+import com.hcl.capstoneserver.generator.id.PaddedIdFormatter;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import javax.persistence.EntityManagerFactory;
+
+/*
+ * Mints the supplier and client ids (SP_00001, CL_00001) from blocks of the supplier/client id sequences.
+ * The sequences are declared by SupplierIdSequence and ClientIdSequence and increment by ID_BLOCK_SIZE,
+ * so one sequence call serves ID_BLOCK_SIZE sign-ups of this node.
+ * */
 @Component
 public class SequenceGenerator {
-    private final SupplierIdSequenceRepository supplierIdSequenceRepository;
-    private final ClientIdSequenceRepository clientIdSequenceRepository;
-
-    public SequenceGenerator(
-            SupplierIdSequenceRepository supplierIdSequenceRepository,
-            ClientIdSequenceRepository clientIdSequenceRepository
-    ) {
-        this.supplierIdSequenceRepository = supplierIdSequenceRepository;
-        this.clientIdSequenceRepository = clientIdSequenceRepository;
+    public static final String ID_BLOCK_SIZE = "50";
+    public static final String SUPPLIER_SEQUENCE = "suppler_id_sequence";
+    public static final String CLIENT_SEQUENCE = "clientid_sequence";
+    private static final PaddedIdFormatter SUPPLIER_ID_FORMATTER = PaddedIdFormatter.compile("SP_", "%05d");
+    private static final PaddedIdFormatter CLIENT_ID_FORMATTER = PaddedIdFormatter.compile("CL_", "%05d");
+
+    private final IdBlockAllocator supplierIds;
+    private final IdBlockAllocator clientIds;
+
+    public SequenceGenerator(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        long blockSize = Long.parseLong(ID_BLOCK_SIZE);
+        this.supplierIds = new IdBlockAllocator(
+                () -> _nextValue(jdbcTemplate, dialect.getSequenceNextValString(SUPPLIER_SEQUENCE)),
+                blockSize
+        );
+        this.clientIds = new IdBlockAllocator(
+                () -> _nextValue(jdbcTemplate, dialect.getSequenceNextValString(CLIENT_SEQUENCE)),
+                blockSize
+        );
     }
 
+    private static long _nextValue(JdbcTemplate jdbcTemplate, String sql) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class);
+        if (value == null) {
+            throw new IllegalStateException("The id sequence returned no value.");
+        }
+        return value;
+    }
 
     public String getSupplierSequence() {
-        SupplierIdSequence generated = supplierIdSequenceRepository.save(new SupplierIdSequence());
-        String id = generated.getId();
-        supplierIdSequenceRepository.delete(generated);
-        return id;
+        return SUPPLIER_ID_FORMATTER.format(supplierIds.next());
     }
 
     public String getClientSequence() {
-        ClientIdSequence generated = clientIdSequenceRepository.save(new ClientIdSequence());
-        String id = generated.getId();
-        clientIdSequenceRepository.delete(generated);
-        return id;
+        return CLIENT_ID_FORMATTER.format(clientIds.next());
     }
 }
@@ -0,0 +1,61 @@
+package com.hcl.capstoneserver.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Runs one call per key at a time, callers that come while a call of the same key is running wait for it
+ * and get its result (or its exception) instead of running their own.
+ * Nothing is kept after the call ends, the next caller runs a new call.
+ * */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, created);
+        if (running != null) {
+            shared.increment();
+            return _join(running);
+        }
+
+        try {
+            V value = call.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, created);
+        }
+    }
+
+    // rethrow the exception of the call as it is, so waiting callers fail the same way as the caller that ran it
+    private V _join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // calls that were answered with the result of another caller
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    public int getInFlightCount() {
+        return calls.size();
+    }
+}
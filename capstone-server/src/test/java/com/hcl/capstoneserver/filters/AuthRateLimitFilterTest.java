@@ -0,0 +1,47 @@
+package com.hcl.capstoneserver.filters;
+
+import com.hcl.capstoneserver.user.dto.AppUserWithPasswordDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "server.forward-headers-strategy=native",
+                "security.rate-limit.ip.burst=2",
+                "security.rate-limit.ip.per-minute=1"
+        }
+)
+public class AuthRateLimitFilterTest {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private WebTestClient.ResponseSpec _signIn(String forwardedFor) {
+        return webTestClient.post()
+                            .uri(String.format("http://localhost:%d/api/sign-in", port))
+                            .header("X-Forwarded-For", forwardedFor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(Mono.just(new AppUserWithPasswordDTO("aaa", "bbb")), AppUserWithPasswordDTO.class)
+                            .exchange();
+    }
+
+    @Test
+    @DisplayName("it should limit the forwarded client address, not the address of the proxy")
+    public void shouldLimitForwardedClient() {
+        _signIn("203.0.113.7").expectStatus().isUnauthorized();
+        _signIn("203.0.113.7").expectStatus().isUnauthorized();
+        _signIn("203.0.113.7").expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        _signIn("203.0.113.8").expectStatus().isUnauthorized();
+    }
+}
@@ -0,0 +1,24 @@
+package com.hcl.capstoneserver.generator.id;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PaddedIdFormatterTest {
+    private static final long[] NUMBERS = {
+            0, 1, 9, 10, 99, 12345, 99999, 100000, 1234567890L, Long.MAX_VALUE, -1, -42, -123456, Long.MIN_VALUE
+    };
+
+    @Test
+    @DisplayName("it should format the ids like String.format")
+    void formatLikeStringFormat() {
+        String[][] formats = {{"SP_", "%05d"}, {"CL_", "%05d"}, {"", "%d"}, {"A-", "%01d"}, {"INV", "%012d"}, {"X", "%x"}};
+        for (String[] format : formats) {
+            PaddedIdFormatter formatter = PaddedIdFormatter.compile(format[0], format[1]);
+            for (long number : NUMBERS) {
+                assertEquals(format[0] + String.format(format[1], number), formatter.format(number));
+            }
+        }
+    }
+}
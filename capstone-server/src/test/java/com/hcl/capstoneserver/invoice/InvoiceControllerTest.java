@@ -18,6 +18,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
@@ -194,6 +195,64 @@ public class InvoiceControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("invoice bulk create test")
+    class InvoiceBulkCreateTests {
+        @Test
+        @DisplayName("it should create new invoices")
+        public void shouldCreateNewInvoices() {
+            List<CreateInvoiceDTO> dtos = new ArrayList<>();
+            dtos.add(new CreateInvoiceDTO(
+                    suppliers.get(0).getSupplierId(),
+                    "1234567891",
+                    LocalDate.now(),
+                    25000.0,
+                    CurrencyType.USD
+            ));
+            dtos.add(new CreateInvoiceDTO(
+                    suppliers.get(0).getSupplierId(),
+                    "1234567892",
+                    LocalDate.now(),
+                    25000.0,
+                    CurrencyType.USD
+            ));
+
+            webTestClient.post()
+                         .uri(String.format("http://localhost:%d/api/invoices/create/bulk", port))
+                         .header(HttpHeaders.AUTHORIZATION, client1token)
+                         .contentType(MediaType.APPLICATION_JSON)
+                         .bodyValue(dtos)
+                         .exchange()
+                         .expectStatus()
+                         .isCreated()
+                         .expectBodyList(BulkCreateInvoiceResultDTO.class)
+                         .hasSize(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("invoice import test")
+    class InvoiceImportTests {
+        @Test
+        @DisplayName("it should accept a csv file and return the import job")
+        public void shouldAcceptCsvFile() {
+            String csv = "supplierId,invoiceNumber,invoiceDate,amount,currencyType\n" +
+                    suppliers.get(0).getSupplierId() + ",1234567891," + LocalDate.now() + ",25000,USD\n";
+
+            webTestClient.post()
+                         .uri(String.format("http://localhost:%d/api/invoices/import", port))
+                         .header(HttpHeaders.AUTHORIZATION, client1token)
+                         .contentType(MediaType.parseMediaType("text/csv"))
+                         .bodyValue(csv)
+                         .exchange()
+                         .expectStatus()
+                         .isAccepted()
+                         .expectBody()
+                         .jsonPath("$.jobId")
+                         .isNotEmpty();
+        }
+    }
+
     @Nested
     @DisplayName("invoice update test")
     class InvoiceUpdateTests {
@@ -436,8 +495,50 @@ public class InvoiceControllerTest {
     class InvoiceRetrieveTest {
 
         // BANK
+        @Test
+        @DisplayName("it should export all invoice as csv")
+        public void shouldExportAllInvoiceAsCsv() {
+            String body = webTestClient.method(HttpMethod.GET)
+                                       .uri(String.format(
+                                               "http://localhost:%d/api/invoices/export/bank?format=CSV",
+                                               port
+                                       ))
+                                       .header(HttpHeaders.AUTHORIZATION, client1token)
+                                       .contentType(MediaType.APPLICATION_JSON)
+                                       .body(Mono.just(new InvoiceSearchCriteriaDTO()), InvoiceSearchCriteriaDTO.class)
+                                       .exchange()
+                                       .expectStatus()
+                                       .isOk()
+                                       .expectHeader()
+                                       .contentTypeCompatibleWith("text/csv")
+                                       .expectBody(String.class)
+                                       .returnResult()
+                                       .getResponseBody();
+
+            assertNotNull(body);
+            assertEquals(4, body.split("\n").length);
+        }
 
         // CLIENT
+        @Test
+        @DisplayName("it should stream his/ her invoice as ndjson")
+        public void shouldStreamClientInvoice() {
+            String body = webTestClient.method(HttpMethod.GET)
+                                       .uri(String.format("http://localhost:%d/api/invoices/stream/client", port))
+                                       .header(HttpHeaders.AUTHORIZATION, client1token)
+                                       .accept(MediaType.APPLICATION_NDJSON)
+                                       .contentType(MediaType.APPLICATION_JSON)
+                                       .body(Mono.just(new InvoiceSearchCriteriaDTO()), InvoiceSearchCriteriaDTO.class)
+                                       .exchange()
+                                       .expectStatus()
+                                       .isOk()
+                                       .expectBody(String.class)
+                                       .returnResult()
+                                       .getResponseBody();
+
+            assertNotNull(body);
+            assertEquals(2, body.split("\n").length);
+        }
 
         //SUPPLIER
     }
@@ -0,0 +1,254 @@
+package com.hcl.capstoneserver.invoice;
+
+import com.hcl.capstoneserver.invoice.dto.ClientViewInvoiceDTO;
+import com.hcl.capstoneserver.invoice.model.InvoiceImportJob;
+import com.hcl.capstoneserver.invoice.repositories.InvoiceRepository;
+import com.hcl.capstoneserver.user.UserTestUtils;
+import com.hcl.capstoneserver.user.dto.ClientDTO;
+import com.hcl.capstoneserver.user.dto.SupplierDTO;
+import com.hcl.capstoneserver.user.repositories.ClientRepository;
+import com.hcl.capstoneserver.user.repositories.SupplierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.hcl.capstoneserver.util.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class InvoiceImportServiceTest {
+    @Autowired
+    InvoiceImportService invoiceImportService;
+
+    @Autowired
+    InvoiceRepository invoiceRepository;
+
+    @Autowired
+    UserTestUtils userTestUtils;
+
+    @Autowired
+    InvoiceTestUtils invoiceTestUtils;
+
+    @Autowired
+    SupplierRepository supplierRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    @Qualifier("invoiceImportExecutor")
+    ExecutorService invoiceImportExecutor;
+
+    @Autowired
+    InvoiceService invoiceService;
+
+    List<ClientViewInvoiceDTO> createInvoice; // invoiceNumber : 1234567898, 1234567899
+    List<SupplierDTO> suppliers;
+    List<ClientDTO> clients;
+
+    @BeforeEach
+    public void beforeEach() {
+        invoiceRepository.deleteAll();
+        supplierRepository.deleteAll();
+        clientRepository.deleteAll();
+
+        suppliers = userTestUtils.createASupplier();
+        clients = userTestUtils.createAClient();
+        createInvoice = invoiceTestUtils.createInvoice(suppliers);
+    }
+
+    private InvoiceImportJob _import(String csv) throws IOException, InterruptedException {
+        InvoiceImportJob job = invoiceImportService.importInvoices(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                "client"
+        );
+        return _waitFor(job);
+    }
+
+    private InvoiceImportJob _waitFor(InvoiceImportJob job) throws InterruptedException {
+        for (int i = 0; i < 6000 && (job.getStatus() == InvoiceImportStatus.QUEUED
+                || job.getStatus() == InvoiceImportStatus.RUNNING); i++) {
+            Thread.sleep(20);
+        }
+        return invoiceImportService.getImportJob(job.getJobId(), "client");
+    }
+
+    @Test
+    @DisplayName("it should import the valid rows and report the others by line")
+    public void shouldImportValidRowsAndReportOthers() throws Exception {
+        String supplierId = suppliers.get(0).getSupplierId();
+        String today = LocalDate.now().toString();
+        long invoiceCount = invoiceRepository.count();
+        InvoiceImportJob job = _import(
+                "invoiceNumber,supplierId,invoiceDate,amount,currencyType\n" +
+                        "\"1000000001\"," + supplierId + "," + today + ",100.5,USD\n" +
+                        "1234567898," + supplierId + "," + today + ",100,USD\n" +
+                        "\n" +
+                        "1000000002," + supplierId + ",not a date,100,USD\n" +
+                        "1000000003," + supplierId + "," + today + ",-1,USD\n" +
+                        "1000000004," + supplierId + "," + today + ",100,XYZ\n" +
+                        "1000000005,," + today + ",100,USD\n" +
+                        "1000000006," + supplierId + "," + today + ",100,gbp\n"
+        );
+
+        assertEquals(InvoiceImportStatus.DONE, job.getStatus());
+        assertEquals(7, job.getRows());
+        assertEquals(2, job.getCreated());
+        assertEquals(5, job.getRejected());
+        assertEquals(invoiceCount + 2, invoiceRepository.count());
+        assertEquals(3, job.getErrors().get(0).getRow());
+        assertEquals("An invoice number already exists for this supplier.", job.getErrors().get(0).getError());
+        assertTrue(job.getErrors().stream().anyMatch(e -> e.getRow() == 5
+                && "invoice date is not a valid date".equals(e.getError())));
+        assertTrue(job.getErrors().stream().anyMatch(e -> e.getRow() == 8
+                && "supplier id is required".equals(e.getError())));
+    }
+
+    @Test
+    @DisplayName("it should fail the import when a column is missing")
+    public void shouldFailWhenColumnIsMissing() throws Exception {
+        InvoiceImportJob job = _import("invoiceNumber,supplierId,amount,currencyType\n1,SP_1,1,USD\n");
+
+        assertEquals(InvoiceImportStatus.FAILED, job.getStatus());
+        assertEquals("The invoiceDate column is missing.", job.getMessage());
+    }
+
+    @Test
+    @DisplayName("it should not show the import job to another user")
+    public void shouldNotShowJobToAnotherUser() throws Exception {
+        InvoiceImportJob job = _import("invoiceNumber,supplierId,invoiceDate,amount,currencyType\n");
+
+        assertEquals(
+                "400 Import job is not found.",
+                assertThrows(
+                        HttpClientErrorException.class,
+                        () -> invoiceImportService.getImportJob(job.getJobId(), "client2")
+                ).getMessage()
+        );
+    }
+
+    @Test
+    @DisplayName("it should refuse an upload larger than the maximum size")
+    public void shouldRefuseTooLargeUpload() {
+        InvoiceImportService smallImportService = new InvoiceImportService(
+                invoiceService, invoiceImportExecutor, 100, 3600000, 500, 1000, 1024, 2, 10
+        );
+        byte[] csv = new byte[1025];
+        Arrays.fill(csv, (byte) 'a');
+
+        assertEquals(
+                "413 The import file is larger than 1024 bytes.",
+                assertThrows(
+                        HttpClientErrorException.class,
+                        () -> smallImportService.importInvoices(new ByteArrayInputStream(csv), "client")
+                ).getMessage()
+        );
+    }
+
+    @Test
+    @DisplayName("it should import a file of more than 50 MB")
+    public void shouldImportLargeFile() throws Exception {
+        String supplierId = suppliers.get(0).getSupplierId();
+        String today = LocalDate.now().toString();
+        char[] note = new char[64 * 1024];
+        Arrays.fill(note, 'x');
+        String padding = new String(note);
+        int rowCount = 1000;
+        long invoiceCount = invoiceRepository.count();
+
+        // the rows are made while the file is read, the file is not held in memory by the test
+        InputStream csv = new InputStream() {
+            private int row = -1;
+            private byte[] line = "invoiceNumber,supplierId,invoiceDate,amount,currencyType,note\n"
+                    .getBytes(StandardCharsets.UTF_8);
+            private int position;
+
+            @Override
+            public int read() {
+                byte[] buffer = new byte[1];
+                return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (position == line.length) {
+                    if (++row == rowCount) {
+                        return -1;
+                    }
+                    line = String.format("%d,%s,%s,100,USD,%s\n", 2000000000L + row, supplierId, today, padding)
+                                 .getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                }
+                int read = Math.min(length, line.length - position);
+                System.arraycopy(line, position, buffer, offset, read);
+                position += read;
+                return read;
+            }
+        };
+
+        InvoiceImportJob job = _waitFor(invoiceImportService.importInvoices(csv, "client"));
+
+        assertEquals(InvoiceImportStatus.DONE, job.getStatus());
+        assertEquals(rowCount, job.getRows());
+        assertEquals(rowCount, job.getCreated());
+        assertEquals(invoiceCount + rowCount, invoiceRepository.count());
+    }
+
+    @Test
+    @DisplayName("it should not evict a queued or running job from the finished jobs")
+    public void shouldKeepActiveJobWhenJobsAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = ((ThreadPoolExecutor) invoiceImportExecutor).getCorePoolSize();
+        for (int i = 0; i < threads; i++) {
+            invoiceImportExecutor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        InvoiceImportJob job;
+        try {
+            job = invoiceImportService.importInvoices(
+                    new ByteArrayInputStream(
+                            "invoiceNumber,supplierId,invoiceDate,amount,currencyType\n"
+                                    .getBytes(StandardCharsets.UTF_8)
+                    ),
+                    "client"
+            );
+            @SuppressWarnings("unchecked")
+            BoundedCache<String, InvoiceImportJob> jobs =
+                    (BoundedCache<String, InvoiceImportJob>) ReflectionTestUtils.getField(invoiceImportService, "jobs");
+            for (int i = 0; i < jobs.getMaxSize() + 1; i++) {
+                String jobId = UUID.randomUUID().toString();
+                jobs.put(jobId, new InvoiceImportJob(jobId, "client", 1));
+            }
+
+            assertEquals(InvoiceImportStatus.QUEUED, invoiceImportService.getImportJob(job.getJobId(), "client")
+                    .getStatus());
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(InvoiceImportStatus.DONE, _waitFor(job).getStatus());
+    }
+}
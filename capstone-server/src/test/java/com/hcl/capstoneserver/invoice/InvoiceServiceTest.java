@@ -1,25 +1,53 @@
 package com.hcl.capstoneserver.invoice;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hcl.capstoneserver.invoice.dto.*;
 import com.hcl.capstoneserver.invoice.entities.Invoice;
+import com.hcl.capstoneserver.invoice.model.CursorPage;
 import com.hcl.capstoneserver.invoice.repositories.InvoiceRepository;
+import com.hcl.capstoneserver.user.AuthenticatedUser;
 import com.hcl.capstoneserver.user.UserTestUtils;
 import com.hcl.capstoneserver.user.dto.ClientDTO;
 import com.hcl.capstoneserver.user.dto.SupplierDTO;
 import com.hcl.capstoneserver.user.repositories.ClientRepository;
 import com.hcl.capstoneserver.user.repositories.SupplierRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.api.Trigger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.HttpClientErrorException;
-
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -44,6 +72,21 @@ public class InvoiceServiceTest {
     @Autowired
     ClientRepository clientRepository;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    InvoiceSearchCache invoiceSearchCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     List<ClientViewInvoiceDTO> createInvoice; // invoiceNumber : 1234567898, 1234567899
     List<SupplierDTO> suppliers;
     List<ClientDTO> clients;
@@ -68,6 +111,38 @@ public class InvoiceServiceTest {
         expiredInvoice = invoiceTestUtils.createExpiredInvoice(suppliers, clients);
     }
 
+    // runs ACTION once, before the next invoice row is inserted
+    public static class BeforeInvoiceInsertTrigger implements Trigger {
+        static final AtomicReference<Runnable> ACTION = new AtomicReference<>();
+
+        @Override
+        public void init(
+                Connection conn,
+                String schemaName,
+                String triggerName,
+                String tableName,
+                boolean before,
+                int type
+        ) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            Runnable action = ACTION.getAndSet(null);
+            if (Objects.nonNull(action)) {
+                action.run();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+
     private InvoiceStatus updateInvoiceStatus(InvoiceStatus status, Integer invoiceId) {
         return invoiceService.statusUpdate(new StatusUpdateInvoiceDTO(
                 invoiceId,
@@ -146,6 +221,121 @@ public class InvoiceServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("invoice bulk create test")
+    class InvoiceBulkCreateTests {
+        private CreateInvoiceDTO _getInvoice(String supplierId, String invoiceNumber, LocalDate invoiceDate) {
+            return new CreateInvoiceDTO(supplierId, invoiceNumber, invoiceDate, 25000.0, CurrencyType.USD);
+        }
+
+        @Test
+        @DisplayName("it should create the valid invoices and report the others")
+        public void shouldCreateValidInvoicesAndReportOthers() {
+            String supplierId = suppliers.get(0).getSupplierId();
+            List<CreateInvoiceDTO> dtos = new ArrayList<>();
+            dtos.add(_getInvoice(supplierId, "1234567891", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567898", LocalDate.now()));
+            dtos.add(_getInvoice("SP_1", "1234567892", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567893", LocalDate.parse("2021-04-05")));
+            dtos.add(_getInvoice(supplierId, "1234567891", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567894", LocalDate.now()));
+            long invoiceCount = invoiceRepository.count();
+
+            List<BulkCreateInvoiceResultDTO> results = invoiceService.createInvoices(dtos, "client");
+
+            assertEquals(6, results.size());
+            assertNotNull(results.get(0).getInvoiceId());
+            assertNull(results.get(0).getError());
+            assertEquals("An invoice number already exists for this supplier.", results.get(1).getError());
+            assertEquals("This SUPPLIER is not exist.", results.get(2).getError());
+            assertEquals("The invoice date is an older date.", results.get(3).getError());
+            assertEquals("An invoice number already exists for this supplier.", results.get(4).getError());
+            assertNotNull(results.get(5).getInvoiceId());
+            assertEquals(5, results.get(5).getRow());
+            assertEquals(invoiceCount + 2, invoiceRepository.count());
+        }
+
+        @Test
+        @DisplayName("it should report the invoice numbers created by another request after the check, row by row")
+        public void shouldReportConcurrentDuplicatesRowByRow() {
+            String supplierId = suppliers.get(0).getSupplierId();
+            List<CreateInvoiceDTO> dtos = new ArrayList<>();
+            dtos.add(_getInvoice(supplierId, "1234567861", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567862", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567863", LocalDate.now()));
+            long invoiceCount = invoiceRepository.count();
+
+            // another request creates 1234567862 after the upload checked the invoice numbers, before it inserts them
+            BeforeInvoiceInsertTrigger.ACTION.set(() -> CompletableFuture.runAsync(() -> invoiceService.createInvoice(
+                    _getInvoice(supplierId, "1234567862", LocalDate.now()),
+                    "client"
+            )).join());
+            jdbcTemplate.execute(String.format(
+                    "CREATE TRIGGER BEFORE_INVOICE_INSERT BEFORE INSERT ON INVOICE FOR EACH ROW CALL \"%s\"",
+                    BeforeInvoiceInsertTrigger.class.getName()
+            ));
+            List<BulkCreateInvoiceResultDTO> results;
+            try {
+                results = invoiceService.createInvoices(dtos, "client");
+            } finally {
+                jdbcTemplate.execute("DROP TRIGGER BEFORE_INVOICE_INSERT");
+                BeforeInvoiceInsertTrigger.ACTION.set(null);
+            }
+
+            assertNotNull(results.get(0).getInvoiceId());
+            assertNull(results.get(1).getInvoiceId());
+            assertEquals("An invoice number already exists for this supplier.", results.get(1).getError());
+            assertNotNull(results.get(2).getInvoiceId());
+            // two of the upload and the one of the other request
+            assertEquals(invoiceCount + 3, invoiceRepository.count());
+        }
+
+        @Test
+        @DisplayName("it should report a row without a required value after the chunks already created")
+        public void shouldReportMissingValuesAfterCreatedChunk() {
+            String supplierId = suppliers.get(0).getSupplierId();
+            List<CreateInvoiceDTO> dtos = new ArrayList<>();
+            // the first chunk (invoice.bulk.chunk-size is 500) is created before the rows of the second one are read
+            for (int i = 0; i < 500; i++) {
+                dtos.add(_getInvoice(supplierId, String.valueOf(3000000000L + i), LocalDate.now()));
+            }
+            dtos.add(_getInvoice(supplierId, "1234567871", null));
+            dtos.add(new CreateInvoiceDTO(supplierId, "1234567872", LocalDate.now(), null, CurrencyType.USD));
+            dtos.add(null);
+            dtos.add(_getInvoice(supplierId, "1234567873", LocalDate.now()));
+            long invoiceCount = invoiceRepository.count();
+
+            List<BulkCreateInvoiceResultDTO> results = invoiceService.createInvoices(dtos, "client");
+
+            assertEquals(504, results.size());
+            assertNotNull(results.get(499).getInvoiceId());
+            assertEquals("invoice date is required", results.get(500).getError());
+            assertEquals("amount is required", results.get(501).getError());
+            assertEquals("invoice is required", results.get(502).getError());
+            assertNotNull(results.get(503).getInvoiceId());
+            assertEquals(invoiceCount + 501, invoiceRepository.count());
+        }
+
+        @Test
+        @DisplayName("it should allocate the invoice ids in pooled blocks")
+        public void shouldAllocateInvoiceIdsInBlocks() {
+            String supplierId = suppliers.get(0).getSupplierId();
+            List<CreateInvoiceDTO> dtos = new ArrayList<>();
+            dtos.add(_getInvoice(supplierId, "1234567881", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567882", LocalDate.now()));
+            dtos.add(_getInvoice(supplierId, "1234567883", LocalDate.now()));
+
+            List<BulkCreateInvoiceResultDTO> results = invoiceService.createInvoices(dtos, "client");
+
+            assertEquals(results.get(0).getInvoiceId() + 1, results.get(1).getInvoiceId());
+            assertEquals(results.get(1).getInvoiceId() + 1, results.get(2).getInvoiceId());
+            assertEquals(50L, jdbcTemplate.queryForObject(
+                    "select increment from information_schema.sequences where sequence_name = 'INVOICE_SEQUENCE'",
+                    Long.class
+            ));
+        }
+    }
+
     @Nested
     @DisplayName("invoice update test")
     class InvoiceUpdateTests {
@@ -166,6 +356,20 @@ public class InvoiceServiceTest {
                 );
             }
 
+            @Test
+            @DisplayName("it should not save a copy of the invoice read before its status is updated")
+            public void shouldNotSaveStaleInvoice() {
+                Invoice invoice = invoiceRepository.findById(createInvoice.get(0).getInvoiceId()).get();
+                updateInvoiceStatus(InvoiceStatus.IN_REVIEW, invoice.getInvoiceId());
+
+                invoice.setAmount(1.0);
+                assertThrows(ObjectOptimisticLockingFailureException.class, () -> invoiceRepository.save(invoice));
+                assertEquals(
+                        InvoiceStatus.IN_REVIEW,
+                        invoiceRepository.findById(invoice.getInvoiceId()).get().getStatus()
+                );
+            }
+
             @Test
             @DisplayName("it should not update when invoice is expired")
             public void shouldNotUpdateInvoiceWhenInvoiceIsExpired() {
@@ -208,6 +412,25 @@ public class InvoiceServiceTest {
                 assertEquals("1234567894", invoiceService.updateInvoice(dto, "client").getInvoiceNumber());
             }
 
+            @Test
+            @DisplayName("it should move the invoice to the new supplier and keep the fields that are not given")
+            public void shouldUpdateSupplierAndKeepOtherFields() {
+                UpdateInvoiceDTO dto = new UpdateInvoiceDTO();
+                dto.setInvoiceId(createInvoice.get(0).getInvoiceId());
+                dto.setSupplierId(suppliers.get(1).getSupplierId());
+
+                ClientViewInvoiceDTO invoice = invoiceService.updateInvoice(dto, "client");
+
+                assertEquals(suppliers.get(1).getSupplierId(), invoice.getSupplier().getSupplierId());
+                assertEquals(suppliers.get(1).getName(), invoice.getSupplier().getName());
+                assertEquals(createInvoice.get(0).getInvoiceNumber(), invoice.getInvoiceNumber());
+                assertEquals(createInvoice.get(0).getAmount(), invoice.getAmount());
+                assertEquals(
+                        suppliers.get(0).getSupplierId(),
+                        supplierRepository.findById(suppliers.get(0).getUserId()).get().getSupplierId()
+                );
+            }
+
             @Test
             @DisplayName("it should not update invoice when that invoice owner is not a same client")
             public void shouldNotUpdateInvoiceWhenInvoiceOwnerIsNotEqual() {
@@ -270,6 +493,72 @@ public class InvoiceServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("invoice bulk status update test")
+    class InvoiceBulkStatusUpdateTests {
+        @Test
+        @DisplayName("it should refuse an empty batch")
+        public void shouldRefuseEmptyBatch() {
+            assertEquals(
+                    "400 At least one invoice is required.",
+                    assertThrows(
+                            HttpClientErrorException.class,
+                            () -> invoiceService.statusUpdates(new ArrayList<>(), "BANK")
+                    ).getMessage()
+            );
+        }
+
+        @Test
+        @DisplayName("it should refuse a batch larger than the maximum size")
+        public void shouldRefuseTooLargeBatch() {
+            List<StatusUpdateInvoiceDTO> dtos = new ArrayList<>();
+            for (int i = 0; i < 501; i++) {
+                dtos.add(new StatusUpdateInvoiceDTO(createInvoice.get(0).getInvoiceId(), InvoiceStatus.APPROVED));
+            }
+
+            assertEquals(
+                    "400 At most 500 invoices can be updated at once.",
+                    assertThrows(HttpClientErrorException.class, () -> invoiceService.statusUpdates(dtos, "BANK"))
+                            .getMessage()
+            );
+            assertEquals(
+                    InvoiceStatus.UPLOADED,
+                    invoiceRepository.findById(createInvoice.get(0).getInvoiceId()).get().getStatus()
+            );
+        }
+
+        @Test
+        @DisplayName("it should update the valid invoices and report the skipped ones")
+        public void shouldUpdateValidInvoicesAndReportSkipped() {
+            updateInvoiceStatus(InvoiceStatus.REJECTED, createInvoice.get(1).getInvoiceId());
+            List<StatusUpdateInvoiceDTO> dtos = new ArrayList<>();
+            dtos.add(new StatusUpdateInvoiceDTO(createInvoice.get(0).getInvoiceId(), InvoiceStatus.APPROVED));
+            dtos.add(new StatusUpdateInvoiceDTO(createInvoice.get(1).getInvoiceId(), InvoiceStatus.APPROVED));
+            dtos.add(new StatusUpdateInvoiceDTO(expiredInvoice.getInvoiceId(), InvoiceStatus.APPROVED));
+            dtos.add(new StatusUpdateInvoiceDTO(-1, InvoiceStatus.APPROVED));
+            dtos.add(new StatusUpdateInvoiceDTO(createInvoice.get(0).getInvoiceId(), InvoiceStatus.REJECTED));
+
+            List<BulkStatusUpdateResultDTO> results = invoiceService.statusUpdates(dtos, "BANK");
+
+            assertNull(results.get(0).getError());
+            assertEquals("This invoice can not update, because invoice is REJECTED.", results.get(1).getError());
+            assertEquals(
+                    "You can not update the invoice status, because invoice is expire.",
+                    results.get(2).getError()
+            );
+            assertEquals("Invoice is not found.", results.get(3).getError());
+            assertEquals("This invoice can not update, because invoice is APPROVED.", results.get(4).getError());
+            assertEquals(
+                    InvoiceStatus.APPROVED,
+                    invoiceRepository.findById(createInvoice.get(0).getInvoiceId()).get().getStatus()
+            );
+            assertEquals(
+                    InvoiceStatus.UPLOADED,
+                    invoiceRepository.findById(expiredInvoice.getInvoiceId()).get().getStatus()
+            );
+        }
+    }
+
     @Nested
     @DisplayName("invoice delete test")
     class InvoiceDeleteTest {
@@ -413,6 +702,22 @@ public class InvoiceServiceTest {
                               ));
             }
 
+            @Test
+            @DisplayName("it should return the invoices of any of the given statuses")
+            public void shouldReturnInvoicesOfAnyStatus() {
+                updateInvoiceStatus(InvoiceStatus.IN_REVIEW, createInvoice.get(0).getInvoiceId());
+                List<InvoiceStatus> statuses = new ArrayList<>();
+                statuses.add(InvoiceStatus.UPLOADED);
+                statuses.add(InvoiceStatus.IN_REVIEW);
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setStatus(statuses);
+
+                List<BankViewInvoiceDTO> invoices = invoiceService.getBankInvoice(dto, "BANK").getContent();
+                assertEquals(3, invoices.size());
+                assertTrue(invoices.stream().anyMatch(i -> i.getStatus() == InvoiceStatus.UPLOADED));
+                assertTrue(invoices.stream().anyMatch(i -> i.getStatus() == InvoiceStatus.IN_REVIEW));
+            }
+
             @Test
             @DisplayName("it should return all invoice By currencyType")
             public void shouldReturnAllInvoiceByCurrencyType() {
@@ -424,6 +729,202 @@ public class InvoiceServiceTest {
                 assertEquals(1, invoiceService.getBankInvoice(dto, "BANK")
                                               .getNumberOfElements());
             }
+
+            @Test
+            @DisplayName("it should return the client and supplier data of the invoice")
+            public void shouldReturnClientAndSupplierData() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setInvoiceNumber("1234567898");
+
+                BankViewInvoiceDTO invoice = invoiceService.getBankInvoice(dto, "BANK").getContent().get(0);
+                assertEquals(clients.get(0).getClientId(), invoice.getClient().getClientId());
+                assertEquals("client", invoice.getClient().getName());
+                assertEquals(suppliers.get(0).getSupplierId(), invoice.getSupplier().getSupplierId());
+                assertEquals("supplier", invoice.getSupplier().getName());
+                assertEquals(CurrencyType.USD, invoice.getCurrencyType());
+            }
+
+            @Test
+            @DisplayName("it should return the next page by cursor")
+            public void shouldReturnNextPageByCursor() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(2);
+                dto.setSortBy("invoiceDate");
+                CursorPage<BankViewInvoiceDTO> first = (CursorPage<BankViewInvoiceDTO>) invoiceService.getBankInvoice(
+                        dto,
+                        "BANK"
+                );
+                assertEquals(2, first.getNumberOfElements());
+                assertNotNull(first.getNextCursor());
+
+                dto.setCursor(first.getNextCursor());
+                CursorPage<BankViewInvoiceDTO> second = (CursorPage<BankViewInvoiceDTO>) invoiceService.getBankInvoice(
+                        dto,
+                        "BANK"
+                );
+                assertEquals(1, second.getNumberOfElements());
+                assertEquals(3, second.getTotalElements());
+                assertNull(second.getNextCursor());
+                first.getContent().forEach(i -> assertNotEquals(
+                        i.getInvoiceId(),
+                        second.getContent().get(0).getInvoiceId()
+                ));
+            }
+
+            @Test
+            @DisplayName("it should return a slice without count when count mode is NONE")
+            public void shouldReturnSliceWhenCountModeIsNone() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(2);
+                dto.setCountMode(InvoiceCountMode.NONE);
+                Slice<BankViewInvoiceDTO> slice = invoiceService.getBankInvoice(dto, "BANK");
+                assertFalse(slice instanceof Page);
+                assertEquals(2, slice.getNumberOfElements());
+                assertTrue(slice.hasNext());
+            }
+
+            @Test
+            @DisplayName("it should refresh the cached count after an invoice is created")
+            public void shouldRefreshCachedCountAfterCreate() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setCountMode(InvoiceCountMode.CACHED);
+                assertEquals(3, ((Page<BankViewInvoiceDTO>) invoiceService.getBankInvoice(dto, "BANK"))
+                        .getTotalElements());
+
+                invoiceService.createInvoice(new CreateInvoiceDTO(
+                        suppliers.get(0).getSupplierId(),
+                        "1234567891",
+                        LocalDate.now(),
+                        25000.0,
+                        CurrencyType.USD
+                ), "client");
+                assertEquals(4, ((Page<BankViewInvoiceDTO>) invoiceService.getBankInvoice(dto, "BANK"))
+                        .getTotalElements());
+            }
+
+            @Test
+            @DisplayName("it should not accept a cursor of another sort order")
+            public void shouldNotAcceptCursorOfAnotherSortOrder() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(1);
+                dto.setCursor(((CursorPage<BankViewInvoiceDTO>) invoiceService.getBankInvoice(dto, "BANK"))
+                                      .getNextCursor());
+                dto.setSortBy("amount");
+                assertEquals(
+                        "400 The cursor does not match the requested sort order.",
+                        assertThrows(
+                                HttpClientErrorException.class,
+                                () -> invoiceService.getBankInvoice(dto, "BANK")
+                        ).getMessage()
+                );
+            }
+
+            @Test
+            @DisplayName("it should not return a cursor for an offset page after the first one")
+            public void shouldNotReturnCursorForOffsetPage() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(1);
+                dto.setPageIndex(1);
+                CursorPage<BankViewInvoiceDTO> page = (CursorPage<BankViewInvoiceDTO>) invoiceService.getBankInvoice(
+                        dto,
+                        "BANK"
+                );
+                assertEquals(1, page.getNumberOfElements());
+                assertTrue(page.hasNext());
+                assertNull(page.getNextCursor());
+            }
+
+            @Test
+            @DisplayName("it should export all invoice as csv")
+            public void shouldExportAllInvoiceAsCsv() throws IOException {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(1);
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                invoiceService.exportBankInvoice(dto, InvoiceExportFormat.CSV, outputStream, "BANK");
+
+                String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+                assertEquals(4, lines.length);
+                assertTrue(lines[0].startsWith("invoiceId,clientId,clientName"));
+                assertTrue(lines[1].contains(suppliers.get(0).getSupplierId()));
+            }
+
+            @Test
+            @DisplayName("it should export the filtered invoice as ndjson")
+            public void shouldExportFilteredInvoiceAsNdjson() throws IOException {
+                List<InvoiceStatus> statuses = new ArrayList<>();
+                statuses.add(InvoiceStatus.UPLOADED);
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setStatus(statuses);
+                updateInvoiceStatus(InvoiceStatus.IN_REVIEW, createInvoice.get(0).getInvoiceId());
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                invoiceService.exportBankInvoice(dto, InvoiceExportFormat.NDJSON, outputStream, "BANK");
+
+                String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+                assertEquals(2, lines.length);
+                for (String line : lines) {
+                    assertEquals(
+                            InvoiceStatus.UPLOADED,
+                            objectMapper.readValue(line, BankViewInvoiceDTO.class).getStatus()
+                    );
+                }
+            }
+
+            @Test
+            @DisplayName("it should stream all invoice")
+            public void shouldStreamAllInvoice() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(1);
+                List<BankViewInvoiceDTO> invoices = invoiceService.streamBankInvoice(dto, "BANK").collectList().block();
+                assertNotNull(invoices);
+                assertEquals(3, invoices.size());
+                assertNotNull(invoices.get(0).getClient().getName());
+            }
+
+            @Test
+            @DisplayName("it should refuse a stream when invoice.stream.max-open streams are open")
+            public void shouldRefuseStreamWhenTooManyAreOpen() throws InterruptedException {
+                // slow subscribers: each one reads the first row and does not request the next one
+                CountDownLatch firstRows = new CountDownLatch(4);
+                List<Disposable> openStreams = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    BaseSubscriber<BankViewInvoiceDTO> subscriber = new BaseSubscriber<BankViewInvoiceDTO>() {
+                        @Override
+                        protected void hookOnSubscribe(Subscription subscription) {
+                            request(1);
+                        }
+
+                        @Override
+                        protected void hookOnNext(BankViewInvoiceDTO invoice) {
+                            firstRows.countDown();
+                        }
+                    };
+                    invoiceService.streamBankInvoice(new InvoiceSearchCriteriaDTO(), "BANK").subscribe(subscriber);
+                    openStreams.add(subscriber);
+                }
+                assertTrue(firstRows.await(10, TimeUnit.SECONDS));
+
+                try {
+                    assertEquals(
+                            "429 Too many invoice streams are open, please try again later.",
+                            assertThrows(
+                                    HttpClientErrorException.class,
+                                    () -> invoiceService.streamBankInvoice(new InvoiceSearchCriteriaDTO(), "BANK")
+                                                        .collectList()
+                                                        .block()
+                            ).getMessage()
+                    );
+                } finally {
+                    openStreams.forEach(Disposable::dispose);
+                }
+
+                // a cancelled stream gives its place back
+                List<BankViewInvoiceDTO> invoices = invoiceService.streamBankInvoice(
+                        new InvoiceSearchCriteriaDTO(),
+                        "BANK"
+                ).collectList().block();
+                assertNotNull(invoices);
+                assertEquals(3, invoices.size());
+            }
         }
 
         // CLIENT
@@ -444,6 +945,133 @@ public class InvoiceServiceTest {
                 assertEquals(2, invoiceService.getClientInvoice(dto, "client").getNumberOfElements());
             }
 
+            @Test
+            @DisplayName("it should use the client id of the token")
+            public void shouldUseClientIdOfToken() {
+                AuthenticatedUser user = new AuthenticatedUser("client", clients.get(0).getClientId(), null);
+                assertEquals(2, invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), user).getNumberOfElements());
+                assertNotNull(invoiceService.createInvoice(
+                        new CreateInvoiceDTO(
+                                suppliers.get(0).getSupplierId(),
+                                "1234567871",
+                                LocalDate.now(),
+                                25000.0,
+                                CurrencyType.USD
+                        ),
+                        user
+                ).getInvoiceId());
+                assertEquals(3, invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), user).getNumberOfElements());
+            }
+
+            @Test
+            @DisplayName("it should return the cached page until one of his/ her invoices is written")
+            public void shouldReturnCachedPageUntilInvoiceIsWritten() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                Slice<ClientViewInvoiceDTO> page = invoiceService.getClientInvoice(dto, "client");
+                double hits = meterRegistry.get("cache.gets")
+                                           .tags("cache", "invoice.search.page", "result", "hit")
+                                           .functionCounter()
+                                           .count();
+
+                assertSame(page, invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), "client"));
+                assertEquals(
+                        hits + 1,
+                        meterRegistry.get("cache.gets")
+                                     .tags("cache", "invoice.search.page", "result", "hit")
+                                     .functionCounter()
+                                     .count()
+                );
+
+                invoiceService.createInvoice(new CreateInvoiceDTO(
+                        suppliers.get(0).getSupplierId(),
+                        "1234567891",
+                        LocalDate.now(),
+                        25000.0,
+                        CurrencyType.USD
+                ), "client");
+                assertEquals(
+                        3,
+                        invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), "client").getNumberOfElements()
+                );
+            }
+
+            @Test
+            @DisplayName("it should not sort by an attribute that is not a column of the invoice")
+            public void shouldNotSortByAssociation() {
+                InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+                dto.setPageSize(1);
+                dto.setSortBy("client");
+                assertEquals(
+                        "400 Can not sort by client.",
+                        assertThrows(
+                                HttpClientErrorException.class,
+                                () -> invoiceService.getClientInvoice(dto, "client")
+                        ).getMessage()
+                );
+            }
+
+            @Test
+            @DisplayName("it should keep the cached page until the status update is committed")
+            public void shouldInvalidateCachedPageAfterCommit() {
+                Slice<ClientViewInvoiceDTO> page = invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), "client");
+
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    updateInvoiceStatus(InvoiceStatus.IN_REVIEW, createInvoice.get(0).getInvoiceId());
+                    assertSame(page, invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), "client"));
+                });
+                assertNotSame(page, invoiceService.getClientInvoice(new InvoiceSearchCriteriaDTO(), "client"));
+            }
+
+            @Test
+            @DisplayName("it should not keep a page loaded while his/ her invoices were written")
+            public void shouldNotKeepPageLoadedDuringInvalidation() {
+                String clientId = clients.get(0).getClientId();
+                AtomicInteger loads = new AtomicInteger();
+                Supplier<Slice<ClientViewInvoiceDTO>> loader = () -> {
+                    // an invoice of the client is written while the page is read
+                    if (loads.incrementAndGet() == 1) {
+                        invoiceSearchCache.invalidate(clientId);
+                    }
+                    return new SliceImpl<>(new ArrayList<>());
+                };
+
+                invoiceSearchCache.getClientPage(clientId, new InvoiceSearchCriteriaDTO(), loader);
+                invoiceSearchCache.getClientPage(clientId, new InvoiceSearchCriteriaDTO(), loader);
+                assertEquals(2, loads.get());
+                invoiceSearchCache.getClientPage(clientId, new InvoiceSearchCriteriaDTO(), loader);
+                assertEquals(2, loads.get());
+            }
+
+            @Test
+            @DisplayName("it should not keep a generation for the owners without a running load")
+            public void shouldDropGenerationsOfIdleOwners() {
+                for (int i = 0; i < 100; i++) {
+                    String clientId = "CL_" + i;
+                    invoiceSearchCache.getClientPage(
+                            clientId,
+                            new InvoiceSearchCriteriaDTO(),
+                            () -> {
+                                invoiceSearchCache.invalidate(clientId);
+                                return new SliceImpl<>(new ArrayList<ClientViewInvoiceDTO>());
+                            }
+                    );
+                    invoiceSearchCache.invalidate(clientId);
+                }
+
+                assertEquals(0, ((Map<?, ?>) ReflectionTestUtils.getField(invoiceSearchCache, "ownerLoads")).size());
+            }
+
+            @Test
+            @DisplayName("it should stream only his/ her invoice")
+            public void shouldStreamOwnInvoice() {
+                List<ClientViewInvoiceDTO> invoices = invoiceService.streamClientInvoice(
+                        new InvoiceSearchCriteriaDTO(),
+                        "client"
+                ).collectList().block();
+                assertNotNull(invoices);
+                assertEquals(2, invoices.size());
+            }
+
             @Test
             @DisplayName("it should return all invoice By supplierId and status")
             public void shouldReturnAllInvoiceBySupplierId() {
@@ -0,0 +1,291 @@
+package com.hcl.capstoneserver.invoice.repositories;
+
+import com.hcl.capstoneserver.invoice.CurrencyType;
+import com.hcl.capstoneserver.invoice.InvoiceCountMode;
+import com.hcl.capstoneserver.invoice.InvoiceStatus;
+import com.hcl.capstoneserver.invoice.dto.BankViewInvoiceDTO;
+import com.hcl.capstoneserver.invoice.dto.ClientViewInvoiceDTO;
+import com.hcl.capstoneserver.invoice.dto.InvoiceSearchCriteriaDTO;
+import com.hcl.capstoneserver.invoice.dto.SupplierVIewInvoiceDTO;
+import com.hcl.capstoneserver.invoice.entities.Invoice;
+import com.hcl.capstoneserver.invoice.model.CursorPage;
+import com.hcl.capstoneserver.user.entities.Client;
+import com.hcl.capstoneserver.user.entities.Supplier;
+import com.hcl.capstoneserver.user.repositories.ClientRepository;
+import com.hcl.capstoneserver.user.repositories.SupplierRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+// every statement Hibernate prepares is recorded by SqlRecorder, so the plan of the generated search can be checked
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.hcl.capstoneserver.invoice.repositories.InvoiceCriteriaRepositoryTest$SqlRecorder")
+public class InvoiceCriteriaRepositoryTest {
+    @Autowired
+    InvoiceCriteriaRepository invoiceCriteriaRepository;
+
+    @Autowired
+    InvoiceRepository invoiceRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    SupplierRepository supplierRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Statistics statistics;
+
+    @BeforeEach
+    public void beforeEach() {
+        invoiceRepository.deleteAll();
+        supplierRepository.deleteAll();
+        clientRepository.deleteAll();
+
+        // 100 invoices spread over 10 clients and 10 suppliers
+        List<Client> clients = new ArrayList<>();
+        List<Supplier> suppliers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            clients.add(clientRepository.save(new Client(
+                    "client" + i, "password", "client" + i, "Colombo", "client" + i + "@gmail.com",
+                    "071-2314538", 2.5f, String.format("CL_9%04d", i), 1234567891
+            )));
+            suppliers.add(supplierRepository.save(new Supplier(
+                    "supplier" + i, "password", "supplier" + i, "Colombo", "supplier" + i + "@gmail.com",
+                    "071-2314531", 2.5f, String.format("SP_9%04d", i)
+            )));
+        }
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            invoices.add(new Invoice(
+                    clients.get(i % 10),
+                    suppliers.get(i / 10),
+                    String.valueOf(1000000000 + i),
+                    LocalDate.now().plusDays(i % 7),
+                    25000.0,
+                    InvoiceStatus.values()[i % InvoiceStatus.values().length],
+                    CurrencyType.values()[i % CurrencyType.values().length]
+            ));
+        }
+        invoiceRepository.saveAll(invoices);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    @DisplayName("it should read a page of invoices with their clients and suppliers in one select")
+    public void shouldReadPageWithBoundedStatements() {
+        InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+        dto.setPageSize(100);
+        List<Invoice> invoices = invoiceCriteriaRepository.findAllWithFilters(dto).getContent();
+
+        assertEquals(100, invoices.size());
+        invoices.forEach(i -> assertNotNull(i.getClient().getClientId()));
+        invoices.forEach(i -> assertNotNull(i.getSupplier().getSupplierId()));
+        // page query + count query
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        // statement -> name of the thread that prepared it
+        static final Map<String, String> THREADS = new ConcurrentHashMap<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            THREADS.put(sql, Thread.currentThread().getName());
+            return sql;
+        }
+    }
+
+    // name of the thread that prepared the count statement of the search
+    private String _getCountThread(InvoiceSearchCriteriaDTO dto) {
+        SqlRecorder.STATEMENTS.clear();
+        assertEquals(100, ((Page<BankViewInvoiceDTO>) invoiceCriteriaRepository.findAllWithFilters(
+                dto,
+                BankViewInvoiceDTO.class
+        )).getTotalElements());
+        return SqlRecorder.STATEMENTS.stream()
+                                     .filter(sql -> sql.startsWith("select count("))
+                                     .map(SqlRecorder.THREADS::get)
+                                     .findFirst()
+                                     .orElseThrow(AssertionError::new);
+    }
+
+    @Test
+    @DisplayName("it should count the invoices on the count executor while the page is read")
+    public void shouldCountInParallel() {
+        assertThat(_getCountThread(new InvoiceSearchCriteriaDTO())).startsWith("invoice-count-");
+    }
+
+    @Test
+    @DisplayName("it should count the invoices itself when no parallel count permit is free")
+    public void shouldCountInlineWithoutPermit() {
+        Semaphore countPermits = (Semaphore) ReflectionTestUtils.getField(invoiceCriteriaRepository, "countPermits");
+        assertNotNull(countPermits);
+        int permits = countPermits.drainPermits();
+        try {
+            assertEquals(Thread.currentThread().getName(), _getCountThread(new InvoiceSearchCriteriaDTO()));
+        } finally {
+            countPermits.release(permits);
+        }
+        assertThat(_getCountThread(new InvoiceSearchCriteriaDTO())).startsWith("invoice-count-");
+    }
+
+    @Test
+    @DisplayName("it should not count again on a cursor page")
+    public void shouldNotCountOnCursorPage() {
+        InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+        dto.setPageSize(10);
+        String cursor = ((CursorPage<BankViewInvoiceDTO>) invoiceCriteriaRepository.findAllWithFilters(
+                dto,
+                BankViewInvoiceDTO.class
+        )).getNextCursor();
+        assertNotNull(cursor);
+
+        SqlRecorder.STATEMENTS.clear();
+        dto.setCursor(cursor);
+        assertEquals(100, ((Page<BankViewInvoiceDTO>) invoiceCriteriaRepository.findAllWithFilters(
+                dto,
+                BankViewInvoiceDTO.class
+        )).getTotalElements());
+        assertEquals(1, SqlRecorder.STATEMENTS.size());
+        assertThat(SqlRecorder.STATEMENTS.get(0)).doesNotStartWith("select count(");
+    }
+
+    // plan chosen by H2 after it has collected the column selectivity of the test data
+    private String _explain(String sql, Object... parameters) {
+        jdbcTemplate.execute("ANALYZE");
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters).toUpperCase();
+    }
+
+    // the page query Hibernate generates for the search, the count mode is NONE so it is the only statement
+    private String _getSearchSql(InvoiceSearchCriteriaDTO dto, Class<?> viewType) {
+        dto.setCountMode(InvoiceCountMode.NONE);
+        SqlRecorder.STATEMENTS.clear();
+        invoiceCriteriaRepository.findAllWithFilters(dto, viewType);
+        assertEquals(1, SqlRecorder.STATEMENTS.size());
+        return SqlRecorder.STATEMENTS.get(0);
+    }
+
+    private InvoiceSearchCriteriaDTO _getSearchCriteria() {
+        List<InvoiceStatus> statuses = new ArrayList<>();
+        statuses.add(InvoiceStatus.IN_REVIEW);
+        InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+        dto.setDateFrom(LocalDate.now());
+        dto.setStatus(statuses);
+        return dto;
+    }
+
+    @Test
+    @DisplayName("it should check the invoice number of a supplier with the unique index")
+    public void shouldUseUniqueIndexForInvoiceNumberCheck() {
+        SqlRecorder.STATEMENTS.clear();
+        assertEquals(1, invoiceRepository.findSupplierInvoiceNumbers(
+                Collections.singleton("SP_90001"),
+                Collections.singleton("1000000011")
+        ).size());
+        assertEquals(1, SqlRecorder.STATEMENTS.size());
+        // supplier id, invoice number
+        assertThat(_explain(SqlRecorder.STATEMENTS.get(0), "SP_90001", "1000000011"))
+                .contains("UK_INVOICE_SUPPLIER_NUMBER");
+    }
+
+    @Test
+    @DisplayName("it should search the invoices of a client with the client index")
+    public void shouldUseClientIndexForClientSearch() {
+        InvoiceSearchCriteriaDTO dto = _getSearchCriteria();
+        dto.setClientId("CL_90001");
+        // client id, invoice date, status, page size + 1
+        assertThat(_explain(
+                _getSearchSql(dto, ClientViewInvoiceDTO.class),
+                "CL_90001", Date.valueOf(LocalDate.now()), InvoiceStatus.IN_REVIEW.ordinal(), 11
+        )).contains("IDX_INVOICE_CLIENT_SEARCH");
+    }
+
+    @Test
+    @DisplayName("it should search the invoices of a supplier with the supplier index")
+    public void shouldUseSupplierIndexForSupplierSearch() {
+        InvoiceSearchCriteriaDTO dto = _getSearchCriteria();
+        dto.setSupplierId("SP_90001");
+        // supplier id, invoice date, status, page size + 1
+        assertThat(_explain(
+                _getSearchSql(dto, SupplierVIewInvoiceDTO.class),
+                "SP_90001", Date.valueOf(LocalDate.now()), InvoiceStatus.IN_REVIEW.ordinal(), 11
+        )).contains("IDX_INVOICE_SUPPLIER_SEARCH");
+    }
+
+    @Test
+    @DisplayName("it should filter on the client and supplier through the joins of the view")
+    public void shouldFilterThroughViewJoins() {
+        InvoiceSearchCriteriaDTO dto = new InvoiceSearchCriteriaDTO();
+        dto.setClientId("CL_90001");
+        dto.setSupplierId("SP_90001");
+        String sql = _getSearchSql(dto, BankViewInvoiceDTO.class).toLowerCase();
+
+        assertEquals(1, sql.split(" join client ", -1).length - 1);
+        assertEquals(1, sql.split(" join supplier ", -1).length - 1);
+        assertEquals(1, invoiceCriteriaRepository.findAllWithFilters(dto, BankViewInvoiceDTO.class)
+                                                 .getNumberOfElements());
+    }
+
+    @Test
+    @DisplayName("it should not save two invoices with the same supplier and invoice number")
+    public void shouldNotSaveDuplicateInvoiceNumberOfSupplier() {
+        Invoice invoice = invoiceRepository.findAll().get(0);
+        Invoice duplicate = new Invoice(
+                invoice.getClient(),
+                invoice.getSupplier(),
+                invoice.getInvoiceNumber(),
+                LocalDate.now(),
+                100.0,
+                InvoiceStatus.UPLOADED,
+                CurrencyType.EUR
+        );
+        DataIntegrityViolationException e = assertThrows(
+                DataIntegrityViolationException.class,
+                () -> invoiceRepository.save(duplicate)
+        );
+        // the service tells a duplicate invoice number from other violations by the name of the constraint
+        assertThat(((ConstraintViolationException) e.getCause()).getConstraintName())
+                .containsIgnoringCase(Invoice.SUPPLIER_NUMBER_CONSTRAINT);
+    }
+}
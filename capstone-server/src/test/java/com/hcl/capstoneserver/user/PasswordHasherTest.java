@@ -0,0 +1,67 @@
+package com.hcl.capstoneserver.user;
+
+import com.hcl.capstoneserver.user.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+
+    @Test
+    @DisplayName("it should hash and check passwords on the workers and time them")
+    void hashOnWorkers() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), executor, meterRegistry);
+
+            String hash = hasher.encode("password");
+
+            assertTrue(hasher.matches("password", hash));
+            assertFalse(hasher.matches("other", hash));
+            assertEquals(1, meterRegistry.get("password.hash").tag("operation", "encode").timer().count());
+            assertEquals(2, meterRegistry.get("password.hash").tag("operation", "matches").timer().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("it should refuse the work at once when the workers and the queue are full")
+    void refuseWhenFull() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy()
+        );
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), executor, new SimpleMeterRegistry());
+            executor.submit(() -> {
+                release.await();
+                return null;
+            });
+            executor.submit(() -> null);
+
+            assertThrows(PasswordHashingBusyException.class, () -> hasher.encode("password"));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("it should ask for a rehash of the hashes of a lower work factor")
+    void upgradeLowerWorkFactor() {
+        PasswordHasher hasher = new PasswordHasher(
+                new BCryptPasswordEncoder(6),
+                Executors.newSingleThreadExecutor(),
+                new SimpleMeterRegistry()
+        );
+        assertTrue(hasher.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+        assertFalse(hasher.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password")));
+    }
+}
@@ -7,9 +7,11 @@ import com.hcl.capstoneserver.user.entities.AppUser;
 import com.hcl.capstoneserver.user.entities.Client;
 import com.hcl.capstoneserver.user.entities.Supplier;
 import com.hcl.capstoneserver.user.exceptions.EmailAlreadyExistsException;
+import com.hcl.capstoneserver.user.exceptions.TooManySignInAttemptsException;
 import com.hcl.capstoneserver.user.exceptions.UserAlreadyExistsException;
 import com.hcl.capstoneserver.user.repositories.ClientRepository;
 import com.hcl.capstoneserver.user.repositories.SupplierRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -17,6 +19,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,6 +48,9 @@ public class UserServiceTest {
     @Autowired
     InvoiceRepository invoiceRepository;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @BeforeEach
     public void beforeEach() {
         invoiceRepository.deleteAll();
@@ -110,6 +123,89 @@ public class UserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("sign in rate limit tests")
+    class SignInRateLimitTests {
+        @Test
+        @DisplayName("it should refuse the sign in of a user id after too many failed attempts")
+        public void shouldRefuseAfterFailedAttempts() {
+            AppUser user = new AppUser();
+            user.setUserId("ratelimited");
+            user.setPassword("password");
+
+            for (int i = 0; i < 5; i++) {
+                assertThrows(BadCredentialsException.class, () -> userService.signIn(user));
+            }
+
+            assertThrows(TooManySignInAttemptsException.class, () -> userService.signIn(user));
+        }
+
+        @Test
+        @DisplayName("it should not let parallel attempts of a user id pass the limit together")
+        public void shouldLimitParallelAttempts() {
+            AppUser user = new AppUser();
+            user.setUserId("parallel");
+            user.setPassword("password");
+
+            ExecutorService executor = Executors.newFixedThreadPool(20);
+            try {
+                List<CompletableFuture<Boolean>> attempts = IntStream
+                        .range(0, 20)
+                        .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                            try {
+                                userService.signIn(user);
+                                return false;
+                            } catch (TooManySignInAttemptsException e) {
+                                return true;
+                            } catch (BadCredentialsException e) {
+                                return false;
+                            }
+                        }, executor))
+                        .collect(Collectors.toList());
+
+                // the burst of the user id is 5, the other attempts are refused
+                assertEquals(15, attempts.stream().filter(CompletableFuture::join).count());
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("it should not count the successful sign ins")
+        public void shouldNotCountSuccessfulSignIns() {
+            userTestUtils.createAClient();
+            AppUser user = new AppUser();
+            user.setUserId("client");
+            user.setPassword("password");
+
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(userService.signIn(user));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("password rehash tests")
+    class PasswordRehashTests {
+        @Test
+        @DisplayName("it should rehash a password of a lower work factor on sign in")
+        public void shouldRehashOlderPassword() {
+            userTestUtils.createAClient();
+            Client client = clientRepository.findById("client").get();
+            client.setPassword(new BCryptPasswordEncoder(4).encode("password"));
+            clientRepository.save(client);
+
+            AppUser user = new AppUser();
+            user.setUserId("client");
+            user.setPassword("password");
+            assertNotNull(userService.signIn(user));
+
+            String password = clientRepository.findById("client").get().getPassword();
+            assertTrue(password.startsWith("$2a$10$"));
+            assertNotNull(userService.signIn(user));
+        }
+    }
+
     @Nested
     @DisplayName("refresh token tests")
     class RefreshTokenTests {
@@ -124,6 +220,26 @@ public class UserServiceTest {
             assertNotNull(response.getJwt());
 
         }
+
+        @Test
+        @DisplayName("it should reuse the cached user details on repeated refreshes")
+        public void shouldReuseCachedUserDetails() {
+            userTestUtils.createAClient();
+            userService.refreshToken("client");
+            double hits = _getUserDetailsHits();
+
+            userService.refreshToken("client");
+            userService.refreshToken("client");
+
+            assertEquals(hits + 2, _getUserDetailsHits());
+        }
+
+        private double _getUserDetailsHits() {
+            return meterRegistry.get("cache.gets")
+                                .tags("cache", "user.details", "result", "hit")
+                                .functionCounter()
+                                .count();
+        }
     }
 
     @Nested
@@ -0,0 +1,59 @@
+package com.hcl.capstoneserver.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    @DisplayName("it should evict the least recently used entry when it is full")
+    void evictLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("it should not return expired entries")
+    void expireEntries() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, 0);
+        cache.put("a", 1, System.currentTimeMillis() - 1);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("it should count hits and misses")
+    void countHitsAndMisses() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, 60000);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("it should invalidate the matching entries")
+    void invalidateMatchingEntries() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, 0);
+        cache.put("client|a", 1);
+        cache.put("client|b", 2);
+        cache.put("supplier|a", 3);
+        cache.invalidateIf(key -> key.startsWith("client|"));
+
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.get("supplier|a"));
+    }
+}
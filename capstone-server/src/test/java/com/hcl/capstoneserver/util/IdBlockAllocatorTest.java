@@ -0,0 +1,58 @@
+package com.hcl.capstoneserver.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdBlockAllocatorTest {
+
+    @Test
+    @DisplayName("it should hand out the ids of a block with one sequence call")
+    void handOutBlockIds() {
+        AtomicInteger calls = new AtomicInteger();
+        IdBlockAllocator allocator = new IdBlockAllocator(() -> calls.incrementAndGet() == 1 ? 1 : 11, 10);
+
+        for (long expected = 1; expected <= 10; expected++) {
+            assertEquals(expected, allocator.next());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(11, allocator.next());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("it should not hand out the same id twice to concurrent callers and nodes")
+    void handOutUniqueIds() throws Exception {
+        // a database sequence shared by two nodes, incrementing by the block size
+        AtomicLong sequence = new AtomicLong(1);
+        IdBlockAllocator first = new IdBlockAllocator(() -> sequence.getAndAdd(10), 10);
+        IdBlockAllocator second = new IdBlockAllocator(() -> sequence.getAndAdd(10), 10);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                IdBlockAllocator allocator = i % 2 == 0 ? first : second;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        assertTrue(ids.add(allocator.next()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8000, ids.size());
+        assertTrue(sequence.get() <= 1 + 8000 + 2 * 10);
+    }
+}
@@ -1,8 +1,12 @@
 package com.hcl.capstoneserver.util;
 
+import com.hcl.capstoneserver.user.AppUserDetails;
+import com.hcl.capstoneserver.user.AuthenticatedUser;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,6 +22,9 @@ public class JWTUtilTest {
     @Autowired
     private JWTUtil jwtUtil;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private String _generateToken() {
         User user = new User(
                 "user1",
@@ -45,6 +52,50 @@ public class JWTUtilTest {
         Assertions.assertEquals("{authority=USER}", jwtUtil.extractUserType(_generateToken()));
     }
 
+    @Test
+    @DisplayName("it should read the username, the user type and the expiry from one parse")
+    void parseVerifiedClaims() {
+        Claims claims = jwtUtil.parseVerifiedClaims(_generateToken());
+        Assertions.assertEquals("user1", claims.getSubject());
+        Assertions.assertEquals("{authority=USER}", jwtUtil.getUserType(claims));
+        Assertions.assertFalse(jwtUtil.isTokenExpired(claims));
+    }
+
+    @Test
+    @DisplayName("it should carry the client id of the user in the token")
+    void carryClientId() {
+        AppUserDetails user = new AppUserDetails(
+                "client1",
+                "password",
+                Collections.singleton(new SimpleGrantedAuthority("CLIENT")),
+                "CL_00001",
+                null
+        );
+        AuthenticatedUser authenticatedUser = jwtUtil.getAuthenticatedUser(
+                jwtUtil.parseVerifiedClaims(jwtUtil.generateToken(user))
+        );
+        Assertions.assertEquals("client1", authenticatedUser.getName());
+        Assertions.assertEquals("CL_00001", authenticatedUser.getClientId());
+        Assertions.assertNull(authenticatedUser.getSupplierId());
+    }
+
+    @Test
+    @DisplayName("it should not verify a token again on its next requests")
+    void reuseVerifiedToken() {
+        String token = _generateToken();
+        Claims claims = jwtUtil.parseVerifiedClaims(token);
+        double hits = meterRegistry.get("cache.gets")
+                                   .tags("cache", "jwt.verified", "result", "hit")
+                                   .functionCounter()
+                                   .count();
+
+        Assertions.assertSame(claims, jwtUtil.parseVerifiedClaims(token));
+        Assertions.assertEquals(hits + 1, meterRegistry.get("cache.gets")
+                                                       .tags("cache", "jwt.verified", "result", "hit")
+                                                       .functionCounter()
+                                                       .count());
+    }
+
     @Test
     @DisplayName("it should throw MalformedJwtException on incorrect jwt tokens")
     void validateInvalidToken() {
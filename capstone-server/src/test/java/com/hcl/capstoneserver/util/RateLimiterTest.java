@@ -0,0 +1,111 @@
+package com.hcl.capstoneserver.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    @Test
+    @DisplayName("it should allow a burst and then one request per interval")
+    void allowBurstThenRefill() {
+        AtomicLong clock = new AtomicLong(1_000);
+        RateLimiter limiter = new RateLimiter(3, 100, 10, clock::get);
+
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.hasToken("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+
+        clock.addAndGet(100);
+        assertTrue(limiter.hasToken("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        assertEquals(2, limiter.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("it should drop the full buckets when the number of keys reaches the limit")
+    void dropFullBuckets() {
+        AtomicLong clock = new AtomicLong(1_000);
+        RateLimiter limiter = new RateLimiter(1, 100, 2, clock::get);
+
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+
+        clock.addAndGet(100);
+        assertTrue(limiter.tryAcquire("c"));
+        assertEquals(1, limiter.size());
+        assertFalse(limiter.tryAcquire("c"));
+        assertEquals(0, limiter.getEvictedCount());
+    }
+
+    @Test
+    @DisplayName("it should evict the bucket closest to full instead of letting a new key through")
+    void evictOldestBucketWhenFull() {
+        AtomicLong clock = new AtomicLong(1_000);
+        RateLimiter limiter = new RateLimiter(2, 100, 2, clock::get);
+
+        assertTrue(limiter.tryAcquire("attacker"));
+        assertTrue(limiter.tryAcquire("attacker"));
+        assertFalse(limiter.tryAcquire("attacker"));
+        assertTrue(limiter.tryAcquire("b"));
+
+        // every bucket is in use, the new keys evict the other keys and are limited
+        assertTrue(limiter.tryAcquire("c"));
+        assertTrue(limiter.tryAcquire("d"));
+        assertTrue(limiter.tryAcquire("d"));
+        assertFalse(limiter.tryAcquire("d"));
+        assertEquals(2, limiter.size());
+        assertEquals(2, limiter.getEvictedCount());
+
+        // the emptied bucket is kept, so the attacker is still limited
+        assertFalse(limiter.hasToken("attacker"));
+        assertFalse(limiter.tryAcquire("attacker"));
+    }
+
+    @Test
+    @DisplayName("it should evict instead of sweeping again before the sweep interval")
+    void evictBetweenSweeps() {
+        AtomicLong clock = new AtomicLong(1_000);
+        RateLimiter limiter = new RateLimiter(3, 100, 2, clock::get);
+
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        clock.addAndGet(100);
+        assertTrue(limiter.tryAcquire("c"));
+        assertTrue(limiter.tryAcquire("d"));
+        assertEquals(0, limiter.getEvictedCount());
+
+        // c and d are full again, but the next sweep is only due 300 after the last one
+        clock.addAndGet(200);
+        assertTrue(limiter.tryAcquire("e"));
+        assertEquals(2, limiter.size());
+        assertEquals(1, limiter.getEvictedCount());
+    }
+
+    @Test
+    @DisplayName("it should give a token back without filling the bucket over its burst")
+    void releaseToken() {
+        AtomicLong clock = new AtomicLong(1_000);
+        RateLimiter limiter = new RateLimiter(2, 100, 10, clock::get);
+
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.hasToken("a"));
+        limiter.release("a");
+        assertTrue(limiter.tryAcquire("a"));
+
+        limiter.release("a");
+        limiter.release("a");
+        limiter.release("a");
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+    }
+}
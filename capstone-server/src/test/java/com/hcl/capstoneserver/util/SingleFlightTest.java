@@ -0,0 +1,73 @@
+package com.hcl.capstoneserver.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    @DisplayName("it should run concurrent calls of the same key once")
+    void shareConcurrentCalls() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> first = executor.submit(() -> singleFlight.execute("a", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                _await(release);
+                return 42;
+            }));
+            started.await();
+
+            Future<Integer> second = executor.submit(() -> singleFlight.execute("a", runs::incrementAndGet));
+            Future<Integer> third = executor.submit(() -> singleFlight.execute("a", runs::incrementAndGet));
+            while (singleFlight.getSharedCount() < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals(42, first.get(5, TimeUnit.SECONDS));
+            assertEquals(42, second.get(5, TimeUnit.SECONDS));
+            assertEquals(42, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("it should run a new call once the previous one ended")
+    void runAgainAfterCallEnded() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        assertEquals(1, singleFlight.execute("a", () -> 1));
+        assertEquals(2, singleFlight.execute("a", () -> 2));
+        assertEquals(0, singleFlight.getSharedCount());
+    }
+
+    @Test
+    @DisplayName("it should rethrow the exception of the call")
+    void rethrowException() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("a", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    private static void _await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}